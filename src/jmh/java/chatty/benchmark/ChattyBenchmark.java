@@ -0,0 +1,108 @@
+package chatty.benchmark;
+
+import chatty.Chatty;
+import chatty.ChattyExceptions;
+import chatty.storage.Storage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures commands as an interactive user mixes them: a change to the list
+ * followed by a query, which the query cache cannot answer because the change
+ * invalidated it.
+ *
+ * <p>{@code findOnly} and {@code dueOnly} repeat a query with nothing changed in
+ * between, with the cache cleared by a change made before the trial. The other
+ * benchmarks put a {@code mark} and {@code unmark} of the first task, which
+ * leave the list as it was, before each query or page of {@code list}, so they
+ * show what a change costs the next read. Every trial works in its own
+ * temporary data directory, and journal compaction runs on the persistence
+ * thread as it does in use.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChattyBenchmark {
+    @Param({"1000", "200000"})
+    public int taskCount;
+
+    private Path dataDirectory;
+    private Chatty chatty;
+    private String query;
+    private String dueQuery;
+
+    @Setup
+    public void setUp() throws IOException, ChattyExceptions {
+        dataDirectory = Files.createTempDirectory("chatty-benchmark");
+        Storage.setDataDirectory(dataDirectory);
+        Storage.setFormat(Storage.Format.BINARY);
+        Storage.setDurability(Storage.Durability.ASYNC);
+        Storage.writeToFile(TaskData.tasks(taskCount, 1));
+        chatty = new Chatty();
+        query = "find " + (taskCount - 1); // one match, as names end in their index
+        dueQuery = "due " + TaskData.FIRST_DATE.plusDays(TaskData.DAYS / 2);
+        // build the indexes, as the first query of a session does
+        chatty.getResponse(query);
+        chatty.getResponse(dueQuery);
+        chatty.getResponse("mark 1");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Storage.flush();
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public String findOnly() {
+        return chatty.getResponse(query);
+    }
+
+    @Benchmark
+    public String dueOnly() {
+        return chatty.getResponse(dueQuery);
+    }
+
+    @Benchmark
+    public void writeThenFind(Blackhole blackhole) {
+        blackhole.consume(chatty.getResponse("unmark 1"));
+        blackhole.consume(chatty.getResponse(query));
+        blackhole.consume(chatty.getResponse("mark 1"));
+        blackhole.consume(chatty.getResponse(query));
+    }
+
+    @Benchmark
+    public void writeThenDue(Blackhole blackhole) {
+        blackhole.consume(chatty.getResponse("unmark 1"));
+        blackhole.consume(chatty.getResponse(dueQuery));
+        blackhole.consume(chatty.getResponse("mark 1"));
+        blackhole.consume(chatty.getResponse(dueQuery));
+    }
+
+    @Benchmark
+    public void writeThenListPage(Blackhole blackhole) {
+        blackhole.consume(chatty.getResponse("unmark 1"));
+        blackhole.consume(chatty.getResponse("list 1 10"));
+        blackhole.consume(chatty.getResponse("mark 1"));
+        blackhole.consume(chatty.getResponse("list 1 10"));
+    }
+}
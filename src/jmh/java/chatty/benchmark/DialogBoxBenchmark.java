@@ -0,0 +1,191 @@
+package chatty.benchmark;
+
+import chatty.ui.Transcript;
+import chatty.ui.TranscriptEntry;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXMLLoader;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many messages per second are rendered into the transcript: each
+ * message gets a dialog box, which is styled and laid out in a viewport holding
+ * the {@value #VISIBLE} latest ones, as the transcript's list view shows them.
+ *
+ * <p>{@code fxmlPerMessage} makes dialog boxes the way they used to be made,
+ * loading {@code DialogBox.fxml} afresh for every message and reversing the
+ * children of Chatty's, and is the baseline. {@code builtInCode} creates a
+ * dialog box for every message with the {@code DialogBox} factories, and
+ * {@code recycled} fills in the {@value #VISIBLE} dialog boxes already in the
+ * viewport, as the list cells do.</p>
+ *
+ * <p>JavaFX controls need the toolkit to be running, so this benchmark needs a
+ * display, or the Monocle headless platform ({@code -Dglass.platform=Monocle
+ * -Dmonocle.platform=Headless}). The scene is never shown, so it is built and laid
+ * out on the benchmark thread. {@code DialogBox} is in the unnamed package, which
+ * cannot be imported, so it is called through method handles.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DialogBoxBenchmark {
+    private static final int MESSAGES = 100;
+    private static final int VISIBLE = 12;
+
+    private VBox viewport;
+    private Image userImage;
+    private Image chattyImage;
+    private String[] messages;
+    private Transcript transcript;
+    private TranscriptEntry[] entries;
+    private Node[] recycled;
+
+    private MethodHandle userDialog;
+    private MethodHandle chattyDialog;
+    private MethodHandle show;
+
+    @Setup
+    public void setUp() throws Throwable {
+        startToolkit();
+        viewport = new VBox();
+        new Scene(viewport, 600, 600);
+        userImage = new Image(DialogBoxBenchmark.class.getResourceAsStream("/images/chattyMan1.png"));
+        chattyImage = new Image(DialogBoxBenchmark.class.getResourceAsStream("/images/chattyMan2.png"));
+
+        // user commands alternate with Chatty's replies
+        String[] commands = TaskData.commands();
+        messages = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            String command = commands[i / 2 % commands.length];
+            messages[i] = i % 2 == 0 ? command : "Got it. I've added this task:\n  [T][ ] " + command + "\n";
+        }
+        transcript = new Transcript(new ArrayList<>(), Transcript.createLogFile(), MESSAGES);
+        entries = new TranscriptEntry[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            entries[i] = transcript.add(i % 2 == 0, messages[i]);
+        }
+
+        Class<?> dialogBox = Class.forName("DialogBox");
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        userDialog = lookup.findStatic(dialogBox, "getUserDialog", MethodType.methodType(dialogBox, String.class));
+        chattyDialog = lookup.findStatic(dialogBox, "getChattyDialog", MethodType.methodType(dialogBox, String.class));
+        show = lookup.findVirtual(dialogBox, "show",
+                MethodType.methodType(void.class, TranscriptEntry.class, Runnable.class));
+        MethodHandle emptyDialog = lookup.findStatic(dialogBox, "getEmptyDialog", MethodType.methodType(dialogBox));
+        recycled = new Node[VISIBLE];
+        for (int i = 0; i < VISIBLE; i++) {
+            recycled[i] = (Node) emptyDialog.invoke();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transcript.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void fxmlPerMessage(Blackhole blackhole) throws IOException {
+        viewport.getChildren().clear();
+        for (int i = 0; i < MESSAGES; i++) {
+            HBox box = loadDialogBox(messages[i], i % 2 == 0);
+            append(box);
+            blackhole.consume(box);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void builtInCode(Blackhole blackhole) throws Throwable {
+        viewport.getChildren().clear();
+        for (int i = 0; i < MESSAGES; i++) {
+            Node box = (Node) (i % 2 == 0 ? userDialog : chattyDialog).invoke(messages[i]);
+            append(box);
+            blackhole.consume(box);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void recycled(Blackhole blackhole) throws Throwable {
+        viewport.getChildren().setAll(recycled);
+        for (int i = 0; i < MESSAGES; i++) {
+            Node box = recycled[i % VISIBLE];
+            show.invoke(box, entries[i], null);
+            viewport.applyCss();
+            viewport.layout();
+            blackhole.consume(box);
+        }
+    }
+
+    /**
+     * Adds a dialog box below the others, dropping the oldest once the viewport
+     * is full, and lays the viewport out.
+     */
+    private void append(Node box) {
+        ObservableList<Node> children = viewport.getChildren();
+        children.add(box);
+        if (children.size() > VISIBLE) {
+            children.remove(0);
+        }
+        viewport.applyCss();
+        viewport.layout();
+    }
+
+    /**
+     * Creates a dialog box the way the {@code DialogBox} constructor did before
+     * it built its nodes in code.
+     */
+    private HBox loadDialogBox(String text, boolean isUser) throws IOException {
+        FXMLLoader fxmlLoader = new FXMLLoader(DialogBoxBenchmark.class.getResource("DialogBox.fxml"));
+        HBox box = new HBox();
+        fxmlLoader.setRoot(box);
+        fxmlLoader.load();
+        ((Label) fxmlLoader.getNamespace().get("dialog")).setText(text);
+        ((ImageView) fxmlLoader.getNamespace().get("displayPicture")).setImage(isUser ? userImage : chattyImage);
+        if (!isUser) {
+            ObservableList<Node> tmp = FXCollections.observableArrayList(box.getChildren());
+            Collections.reverse(tmp);
+            box.getChildren().setAll(tmp);
+            box.setAlignment(Pos.TOP_LEFT);
+        }
+        return box;
+    }
+
+    private static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException e) {
+            started.countDown(); // already running
+        }
+        started.await();
+    }
+}
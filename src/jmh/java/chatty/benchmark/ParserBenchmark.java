@@ -0,0 +1,54 @@
+package chatty.benchmark;
+
+import chatty.Chatty;
+import chatty.ChattyExceptions;
+import chatty.parser.Parser;
+import chatty.task.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of typed commands and of saved task lines.
+ *
+ * <p>Each invocation parses the whole sample, so scores are per batch of
+ * {@link TaskData#commands()} or of {@value #LINES} task lines.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+    private static final int LINES = 1000;
+
+    private String[] commands;
+    private String[] taskLines;
+
+    @Setup
+    public void setUp() {
+        commands = TaskData.commands();
+        taskLines = TaskData.taskLines(LINES, 1);
+    }
+
+    @Benchmark
+    public void parseCommand(Blackhole blackhole) {
+        for (String command : commands) {
+            Chatty.Command parsed = Parser.parseCommand(command);
+            blackhole.consume(parsed);
+        }
+    }
+
+    @Benchmark
+    public void parseTaskFromFile(Blackhole blackhole) throws ChattyExceptions {
+        for (String line : taskLines) {
+            Task task = Parser.parseTaskFromFile(line);
+            blackhole.consume(task);
+        }
+    }
+}
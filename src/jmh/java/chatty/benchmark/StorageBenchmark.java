@@ -0,0 +1,79 @@
+package chatty.benchmark;
+
+import chatty.ChattyExceptions;
+import chatty.storage.Storage;
+import chatty.task.TaskList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures saving and loading the task list in each snapshot format.
+ *
+ * <p>Every trial works in its own temporary data directory. A binary snapshot
+ * is loaded lazily, so its load benchmark also walks the loaded list to include
+ * the cost of decoding every task.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StorageBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"TEXT", "BINARY"})
+    public Storage.Format format;
+
+    private Path dataDirectory;
+    private TaskList tasks;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("chatty-benchmark");
+        Storage.setDataDirectory(dataDirectory);
+        Storage.setFormat(format);
+        tasks = TaskData.tasks(taskCount, 1);
+        Storage.writeToFile(tasks);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeToFile() throws IOException {
+        Storage.writeToFile(tasks);
+    }
+
+    @Benchmark
+    public TaskList load() throws IOException, ChattyExceptions {
+        return Storage.load();
+    }
+
+    @Benchmark
+    public void loadAndReadAll(Blackhole blackhole) throws IOException, ChattyExceptions {
+        TaskList loaded = Storage.load();
+        for (int i = 0; i < loaded.size(); i++) {
+            blackhole.consume(loaded.get(i));
+        }
+    }
+}
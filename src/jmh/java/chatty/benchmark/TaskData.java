@@ -0,0 +1,96 @@
+package chatty.benchmark;
+
+import chatty.task.Deadline;
+import chatty.task.Event;
+import chatty.task.Task;
+import chatty.task.TaskList;
+import chatty.task.Todo;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic task lists for the benchmarks.
+ *
+ * <p>The lists mix todos, deadlines and events over about two years of dates,
+ * with names built from a small vocabulary so that {@code find} has both common
+ * and rare keywords to look up. The same seed always gives the same tasks.</p>
+ */
+final class TaskData {
+    static final LocalDate FIRST_DATE = LocalDate.of(2026, 1, 1);
+    static final int DAYS = 730;
+
+    private static final String[] WORDS = {
+        "read", "write", "submit", "review", "book", "report", "meeting", "project", "code", "lecture",
+        "tutorial", "groceries", "gym", "call", "email", "draft", "plan", "budget", "trip", "exam"
+    };
+
+    private TaskData() {
+    }
+
+    /**
+     * Returns a list of {@code count} generated tasks, about a quarter of them done.
+     */
+    static TaskList tasks(int count, long seed) {
+        TaskList tasks = new TaskList();
+        addTasks(tasks, count, seed);
+        return tasks;
+    }
+
+    /**
+     * Adds {@code count} generated tasks to the list, the same ones
+     * {@link #tasks(int, long)} returns for the seed.
+     */
+    static void addTasks(TaskList tasks, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) {
+            tasks.add(task(random, i));
+        }
+    }
+
+    private static Task task(SplittableRandom random, int i) {
+        String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+        LocalDate date = FIRST_DATE.plusDays(random.nextInt(DAYS));
+        Task task = switch (random.nextInt(3)) {
+        case 0 -> new Todo(name);
+        case 1 -> new Deadline(name, date);
+        default -> new Event(name, date, date.plusDays(random.nextInt(5)));
+        };
+        if (random.nextInt(4) == 0) {
+            task.setComplete();
+        }
+        return task;
+    }
+
+    /**
+     * Returns generated task lines in the format of the text snapshot, without
+     * the leading task numbers.
+     */
+    static String[] taskLines(int count, long seed) {
+        TaskList tasks = tasks(count, seed);
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = tasks.get(i).toString();
+        }
+        return lines;
+    }
+
+    /**
+     * Returns a mix of the commands users type, for parsing benchmarks.
+     */
+    static String[] commands() {
+        return new String[] {
+            "list",
+            "todo read book",
+            "deadline submit report /by 2026-03-01",
+            "event project meeting /from 2026-03-01 /to 2026-03-02",
+            "mark 1 2 3",
+            "unmark 2",
+            "delete 4",
+            "find book",
+            "due 2026-03-01",
+            "DeAdLiNe hw /by 2026-04-01",
+            "nonsense words"
+        };
+    }
+}
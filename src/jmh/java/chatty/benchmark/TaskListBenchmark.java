@@ -0,0 +1,64 @@
+package chatty.benchmark;
+
+import chatty.ChattyExceptions;
+import chatty.task.TaskList;
+import chatty.ui.Ui;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queries that read the whole task list: {@code find},
+ * {@code due} and {@code list}.
+ *
+ * <p>The indexes behind {@code find} and {@code due} are built on first use, so
+ * the set-up runs each query once and the benchmarks measure the steady state.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TaskListBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int taskCount;
+
+    private TaskList tasks;
+    private LocalDate busyDate;
+    private String rareKeyword;
+
+    @Setup
+    public void setUp() throws ChattyExceptions {
+        tasks = TaskData.tasks(taskCount, 1);
+        busyDate = TaskData.FIRST_DATE.plusDays(TaskData.DAYS / 2);
+        rareKeyword = tasks.get(taskCount - 1).getName(); // unique, as names end in their index
+        tasks.find("book");
+        tasks.getTasksDueOn(busyDate);
+    }
+
+    @Benchmark
+    public TaskList findCommonKeyword() {
+        return tasks.find("book");
+    }
+
+    @Benchmark
+    public TaskList findRareKeyword() {
+        return tasks.find(rareKeyword);
+    }
+
+    @Benchmark
+    public TaskList getTasksDueOn() throws ChattyExceptions {
+        return tasks.getTasksDueOn(busyDate);
+    }
+
+    @Benchmark
+    public String listTasks() {
+        return Ui.listTasks(tasks);
+    }
+}
@@ -0,0 +1,99 @@
+package chatty.benchmark;
+
+import chatty.ChattyExceptions;
+import chatty.task.TaskList;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a task list of {@code Task} objects with a columnar one: the heap
+ * each retains, and the speed of building it, of {@code due} queries and of
+ * marking and unmarking every task.
+ *
+ * <p>The retained heap is measured with JOL once per iteration and reported as
+ * the {@code retainedBytesPerTask} secondary result of every benchmark. It
+ * covers the list and everything reachable from it, including the indexes built
+ * by the {@code due} query in the set-up.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TaskListMemoryBenchmark {
+    /** The ways a task list can store its tasks. */
+    public enum Layout {
+        OBJECTS,
+        COLUMNAR
+    }
+
+    @Param({"100000", "1000000"})
+    public int taskCount;
+
+    @Param({"OBJECTS", "COLUMNAR"})
+    public Layout layout;
+
+    private TaskList tasks;
+    private LocalDate busyDate;
+    private List<Integer> allIndexes;
+
+    /**
+     * The heap retained by the task list, reported alongside the timings.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytesPerTask;
+
+        @Setup(Level.Iteration)
+        public void measure(TaskListMemoryBenchmark benchmark) {
+            retainedBytesPerTask = GraphLayout.parseInstance(benchmark.tasks).totalSize() / benchmark.taskCount;
+        }
+    }
+
+    @Setup
+    public void setUp() throws ChattyExceptions {
+        tasks = newList();
+        TaskData.addTasks(tasks, taskCount, 1);
+        busyDate = TaskData.FIRST_DATE.plusDays(TaskData.DAYS / 2);
+        tasks.getTasksDueOn(busyDate);
+        allIndexes = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            allIndexes.add(i);
+        }
+    }
+
+    private TaskList newList() {
+        return layout == Layout.COLUMNAR ? TaskList.columnar() : new TaskList();
+    }
+
+    @Benchmark
+    public TaskList build(Footprint footprint) {
+        TaskList built = newList();
+        TaskData.addTasks(built, taskCount, 1);
+        return built;
+    }
+
+    @Benchmark
+    public TaskList getTasksDueOn(Footprint footprint) throws ChattyExceptions {
+        return tasks.getTasksDueOn(busyDate);
+    }
+
+    @Benchmark
+    public TaskList markAndUnmarkAll(Footprint footprint) {
+        tasks.markTask(allIndexes);
+        return tasks.unmarkTask(allIndexes);
+    }
+}
@@ -0,0 +1,61 @@
+package chatty.benchmark;
+
+import chatty.ChattyExceptions;
+import chatty.storage.Storage;
+import chatty.task.TaskList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how loading a large text snapshot scales with the number of threads
+ * parsing it. A parallelism of 1 is the sequential reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TextLoadBenchmark {
+    @Param({"1000000", "4000000"})
+    public int taskCount;
+
+    @Param({"1", "2", "4", "8"})
+    public int loadParallelism;
+
+    private Path dataDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("chatty-benchmark");
+        Storage.setDataDirectory(dataDirectory);
+        Storage.setFormat(Storage.Format.TEXT);
+        Storage.setLoadParallelism(loadParallelism);
+        Storage.writeToFile(TaskData.tasks(taskCount, 1));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public TaskList load() throws IOException, ChattyExceptions {
+        return Storage.load();
+    }
+}
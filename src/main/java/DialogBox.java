@@ -1,58 +1,176 @@
-import java.io.IOException;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
+import chatty.ui.TranscriptEntry;
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Hyperlink;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
 
 /**
  * Represents a dialog box consisting of an ImageView to represent the speaker's face
  * and a label containing text from the speaker.
+ *
+ * <p>The nodes are built in code rather than loaded from FXML, so creating a
+ * dialog box costs no XML parsing or reflection, and the two pictures are loaded
+ * once and shared by every dialog box. The user's messages are laid out with the
+ * picture on the right and Chatty's with it on the left, each built in that
+ * order directly. A list cell keeps one dialog box and fills it in with
+ * {@link #show(TranscriptEntry, Runnable)} for each entry it shows.</p>
  */
 public class DialogBox extends HBox {
-    @FXML
-    private Label dialog;
-    @FXML
-    private ImageView displayPicture;
+    private static final double PREF_WIDTH = 600.0;
+    private static final Insets PADDING = new Insets(15.0, 10.0, 15.0, 5.0);
+    private static final double PICTURE_SIZE = 50.0;
+    private static final double SPINNER_SIZE = 24.0;
 
-    private DialogBox(String text, Image img) {
-        try {
-            FXMLLoader fxmlLoader = new FXMLLoader(MainWindow.class.getResource("/view/DialogBox.fxml"));
-            fxmlLoader.setController(this);
-            fxmlLoader.setRoot(this);
-            fxmlLoader.load();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /** Bits of {@link #layout}, for the children and alignment currently shown. */
+    private static final int FROM_USER = 1;
+    private static final int PENDING = 2;
+    private static final int CANCELLABLE = 4;
+    private static final int TRUNCATED = 8;
+
+    /** The pictures of the user and Chatty, loaded when the first dialog box is shown. */
+    private static final class Pictures {
+        static final Image USER = load("/images/chattyMan1.png");
+        static final Image CHATTY = load("/images/chattyMan2.png");
+
+        private static Image load(String path) {
+            return new Image(DialogBox.class.getResourceAsStream(path));
         }
+    }
+
+    private final Label dialog = new Label();
+    private final ImageView displayPicture = new ImageView();
+    /** The {@code layout} bits the children were last arranged for, or -1 before the first. */
+    private int layout = -1;
+
+    /** Controls for pending and truncated replies, created when first needed. */
+    private ProgressIndicator spinner;
+    private Button cancelButton;
+    private Hyperlink showMoreLink;
+
+    private DialogBox() {
+        setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+        setPrefWidth(PREF_WIDTH);
+        setPadding(PADDING);
+        dialog.setWrapText(true);
+        dialog.setMinHeight(Region.USE_PREF_SIZE);
+        displayPicture.setFitWidth(PICTURE_SIZE);
+        displayPicture.setFitHeight(PICTURE_SIZE);
+        displayPicture.setPickOnBounds(true);
+        displayPicture.setPreserveRatio(true);
+    }
+
+    public static DialogBox getUserDialog(String text) {
+        var db = new DialogBox();
+        db.dialog.setText(text);
+        db.arrange(FROM_USER);
+        return db;
+    }
 
-        dialog.setText(text);
-        displayPicture.setImage(img);
+    public static DialogBox getChattyDialog(String text) {
+        var db = new DialogBox();
+        db.dialog.setText(text);
+        db.arrange(0);
+        return db;
     }
 
     /**
-     * Flips the dialog box such that the ImageView is on the left and text on the right.
+     * Creates an empty dialog box, to be filled in with {@link #show} and reused
+     * by a list cell for whichever entry it is showing.
      */
-    private void flip() {
-        ObservableList<Node> tmp = FXCollections.observableArrayList(this.getChildren());
-        Collections.reverse(tmp);
-        getChildren().setAll(tmp);
+    public static DialogBox getEmptyDialog() {
+        return new DialogBox();
+    }
+
+    /**
+     * Shows a transcript entry: the user's on the right, and Chatty's on the left
+     * with a spinner and cancel button while it is pending, and a link to show
+     * more of it if it is truncated. The children are only rearranged when the
+     * entry needs a different layout from the one shown before.
+     *
+     * @param entry      the entry to show
+     * @param onShowMore what the show more link does, or {@code null} for no link
+     */
+    public void show(TranscriptEntry entry, Runnable onShowMore) {
+        dialog.setText(entry.getText());
+        Runnable onCancel = entry.getOnCancel();
+        if (entry.isPending() && onCancel != null) {
+            cancelButton().setOnAction(event -> onCancel.run());
+        }
+        if (onShowMore != null) {
+            showMoreLink().setOnAction(event -> onShowMore.run());
+        }
+        int newLayout = entry.isFromUser() ? FROM_USER : 0;
+        if (entry.isPending()) {
+            newLayout |= onCancel != null ? PENDING | CANCELLABLE : PENDING;
+        }
+        if (onShowMore != null) {
+            newLayout |= TRUNCATED;
+        }
+        arrange(newLayout);
+    }
+
+    /**
+     * Sets the picture, children and alignment for a layout, unless it is
+     * already the one shown.
+     */
+    private void arrange(int newLayout) {
+        if (newLayout == layout) {
+            return;
+        }
+        layout = newLayout;
+        if ((newLayout & FROM_USER) != 0) {
+            displayPicture.setImage(Pictures.USER);
+            getChildren().setAll(dialog, displayPicture);
+            setAlignment(Pos.TOP_RIGHT);
+            return;
+        }
+
+        displayPicture.setImage(Pictures.CHATTY);
+        List<Node> children = new ArrayList<>(5);
+        children.add(displayPicture);
+        children.add(dialog);
+        if ((newLayout & PENDING) != 0) {
+            children.add(spinner());
+        }
+        if ((newLayout & CANCELLABLE) != 0) {
+            children.add(cancelButton());
+        }
+        if ((newLayout & TRUNCATED) != 0) {
+            children.add(showMoreLink());
+        }
+        getChildren().setAll(children);
         setAlignment(Pos.TOP_LEFT);
     }
 
-    public static DialogBox getUserDialog(String text, Image img) {
-        return new DialogBox(text, img);
+    private ProgressIndicator spinner() {
+        if (spinner == null) {
+            spinner = new ProgressIndicator();
+            spinner.setPrefSize(SPINNER_SIZE, SPINNER_SIZE);
+        }
+        return spinner;
     }
 
-    public static DialogBox getChattyDialog(String text, Image img) {
-        var db = new DialogBox(text, img);
-        db.flip();
-        return db;
+    private Button cancelButton() {
+        if (cancelButton == null) {
+            cancelButton = new Button("Cancel");
+        }
+        return cancelButton;
+    }
+
+    private Hyperlink showMoreLink() {
+        if (showMoreLink == null) {
+            showMoreLink = new Hyperlink("Show more");
+        }
+        return showMoreLink;
     }
 }
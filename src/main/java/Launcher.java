@@ -1,10 +1,24 @@
+import chatty.BatchRunner;
+import chatty.CommandServer;
 import javafx.application.Application;
 
 /**
  * A launcher class to workaround classpath issues.
+ *
+ * <p>Starting it with {@code --batch} runs a script of commands without the GUI;
+ * see {@link BatchRunner}. Starting it with {@code --server} serves Chatty to
+ * other local processes over a socket instead; see {@link CommandServer}.</p>
  */
 public class Launcher {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals(BatchRunner.BATCH_FLAG)) {
+            BatchRunner.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals(CommandServer.SERVER_FLAG)) {
+            CommandServer.main(args);
+            return;
+        }
         Application.launch(Main.class, args);
     }
 }
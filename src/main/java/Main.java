@@ -2,6 +2,7 @@ import java.io.IOException;
 
 import chatty.Chatty;
 import chatty.ChattyExceptions;
+import chatty.storage.Storage;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -11,6 +12,7 @@ import javafx.stage.Stage;
 public class Main extends Application {
 
     private Chatty chatty = new Chatty();
+    private MainWindow mainWindow;
 
     public Main() throws IOException, ChattyExceptions {
     }
@@ -22,10 +24,19 @@ public class Main extends Application {
             AnchorPane ap = fxmlLoader.load();
             Scene scene = new Scene(ap);
             stage.setScene(scene);
-            fxmlLoader.<MainWindow>getController().setChatty(chatty);  // inject the Duke instance
+            mainWindow = fxmlLoader.getController();
+            mainWindow.setChatty(chatty);  // inject the Duke instance
             stage.show();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    @Override
+    public void stop() throws IOException, InterruptedException {
+        if (mainWindow != null) {
+            mainWindow.shutdown(); // commands may still be queued for the command thread
+        }
+        Storage.flush(); // changes may still be queued for the persistence thread
+    }
 }
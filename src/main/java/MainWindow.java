@@ -1,56 +1,271 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import chatty.Chatty;
+import chatty.parser.ListCursor;
+import chatty.parser.Parser;
+import chatty.ui.Transcript;
+import chatty.ui.TranscriptEntry;
 import chatty.ui.Ui;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
-import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Hyperlink;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
-import javafx.scene.image.Image;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.layout.VBox;
 /**
  * Controller for the main GUI.
+ *
+ * <p>Commands run off the JavaFX Application Thread, on a single background
+ * thread that takes them in the order they were entered, so a slow command never
+ * freezes the window and replies always appear in order. While a command runs its
+ * reply shows a spinner, and a query ({@code list}, {@code find} or {@code due})
+ * can be cancelled. Commands that change the task list cannot be cancelled once
+ * they start, since the change would be made anyway.</p>
+ *
+ * <p>The conversation is shown in a {@link ListView}, which only creates dialog
+ * boxes for the entries on screen and reuses them as it scrolls. The entries
+ * themselves are kept by a {@link Transcript}, which holds only the latest ones
+ * and the start of long replies in memory, and reads the rest back from its log
+ * when asked to show earlier messages or more of a reply.</p>
+ *
+ * <p>{@code list} shows one page of tasks, sized to fill the transcript's height
+ * and resized with the window, and {@code list next} shows the page after it.</p>
  */
 public class MainWindow extends AnchorPane {
+    /** How long closing the window waits for commands that are still queued. */
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+    /** The height of a line of a reply, in pixels, estimated for the default font. */
+    private static final double LINE_HEIGHT = 17.0;
+    /** Lines of a page of {@code list} that are not tasks: the header, a blank line and the hint. */
+    private static final int LIST_EXTRA_LINES = 3;
+
     @FXML
-    private ScrollPane scrollPane;
+    private Hyperlink earlierLink;
     @FXML
-    private VBox dialogContainer;
+    private ListView<TranscriptEntry> transcriptView;
     @FXML
     private TextField userInput;
-    @FXML
 
     private Chatty chatty;
+    private Transcript transcript;
+    /** This window's place in the list, whose page size fits the transcript's height. */
+    private final ListCursor cursor = new ListCursor();
+
+    private final ExecutorService commandThread = Executors.newSingleThreadExecutor(command -> {
+        Thread thread = new Thread(command, "chatty-ui-commands");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private final Image userImage = new Image(this.getClass().getResourceAsStream("/images/chattyMan1.png"));
-    private final Image chattyImage = new Image(this.getClass().getResourceAsStream("/images/chattyMan2.png"));
     @FXML
     public void initialize() {
-        scrollPane.vvalueProperty().bind(dialogContainer.heightProperty());
+        transcriptView.setCellFactory(view -> new DialogCell());
+        transcriptView.heightProperty().addListener((property, oldHeight, height) ->
+                cursor.setPageSize(Math.max(1, (int) (height.doubleValue() / LINE_HEIGHT) - LIST_EXTRA_LINES)));
+        try {
+            transcript = new Transcript(transcriptView.getItems(), Transcript.createLogFile(),
+                    Transcript.DEFAULT_CAPACITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /** Injects the Chatty instance */
     public void setChatty(Chatty c) {
         chatty = c;
-        dialogContainer.getChildren().add(
-                DialogBox.getChattyDialog(Ui.printWelcomeMessage(), chattyImage)
-        );
+        String welcome = Ui.printWelcomeMessage();
+        TranscriptEntry entry = transcript.add(false, welcome);
+        commandThread.execute(() -> record(entry, welcome));
     }
 
     /**
-     * Creates two dialog boxes, one echoing user input and the other containing Duke's reply and then appends them to
-     * the dialog container. Clears the user input after processing.
+     * Adds the user input and a reply showing a spinner to the transcript, and
+     * queues the command to the background thread, which fills in the reply.
+     * The input field is cleared straight away for the next command.
      */
     @FXML
     private void handleUserInput() {
         String input = userInput.getText();
-        String response = chatty.getResponse(input);
+        boolean cancellable = !input.isBlank() && Chatty.isReadOnly(Parser.parseCommand(input));
+        CommandTask command = new CommandTask(input, cancellable);
+        userInput.clear();
+        showLatest();
+        commandThread.execute(command);
+        commandThread.execute(command::record);
+    }
+
+    /**
+     * Pages earlier messages back into the transcript, keeping the messages
+     * that were at the top in view.
+     */
+    @FXML
+    private void showEarlierMessages() {
+        try {
+            transcriptView.scrollTo(transcript.showEarlier());
+        } catch (IOException e) {
+            earlierLink.setText("Could not load earlier messages: " + e.getMessage());
+        }
+        earlierLink.setVisible(transcript.hasEarlier());
+        earlierLink.setManaged(transcript.hasEarlier());
+    }
 
-        dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(input, userImage),
-                DialogBox.getChattyDialog(response, chattyImage)
-        );
+    private void showMore(TranscriptEntry entry) {
+        try {
+            transcript.showMore(entry);
+        } catch (IOException e) {
+            earlierLink.setText("Could not load the rest of the message: " + e.getMessage());
+            earlierLink.setVisible(true);
+            earlierLink.setManaged(true);
+        }
+    }
 
-        userInput.clear();
+    /**
+     * Scrolls to the latest message, and shows the link to earlier ones if the
+     * oldest have been dropped from the transcript.
+     */
+    private void showLatest() {
+        transcriptView.scrollTo(transcriptView.getItems().size() - 1);
+        earlierLink.setVisible(transcript.hasEarlier());
+        earlierLink.setManaged(transcript.hasEarlier());
+    }
+
+    /**
+     * Writes a transcript entry to the transcript's log. This runs on the command
+     * thread, which records entries in the order they were added.
+     */
+    private void record(TranscriptEntry entry, String text) {
+        try {
+            transcript.record(entry, text);
+        } catch (IOException e) {
+            System.err.println("Could not record the transcript: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops taking commands and waits for the queued ones to finish, so that
+     * their changes are recorded before the application exits, then deletes the
+     * transcript's log.
+     *
+     * @throws IOException if the log cannot be deleted
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown() throws IOException, InterruptedException {
+        commandThread.shutdown();
+        commandThread.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        transcript.close();
+    }
+
+    /**
+     * Shows one transcript entry in a dialog box that is reused for whichever
+     * entry the cell shows as the list scrolls.
+     */
+    private final class DialogCell extends ListCell<TranscriptEntry> {
+        private final DialogBox dialogBox = DialogBox.getEmptyDialog();
+
+        DialogCell() {
+            setPrefWidth(0); // fit the width of the list, wrapping long lines, rather than scrolling sideways
+        }
+
+        @Override
+        protected void updateItem(TranscriptEntry entry, boolean empty) {
+            super.updateItem(entry, empty);
+            if (empty || entry == null) {
+                setGraphic(null);
+                return;
+            }
+            dialogBox.show(entry, entry.isTruncated() ? () -> showMore(entry) : null);
+            setGraphic(dialogBox);
+        }
     }
 
+    /**
+     * Runs one command on the background thread, collecting its reply. The reply
+     * is shown by the task's handlers, which JavaFX runs on the Application Thread,
+     * and recorded in the transcript's log by {@link #record()}, which is queued
+     * right after the task so it runs even if the task is cancelled before it starts.
+     *
+     * <p>A cancelled {@code find} or {@code due} stops while it searches, as
+     * Chatty polls {@link #isCancelled()} in its search and index-building loops.
+     * A cancelled {@code list} stops at the next line of its reply, because the
+     * reply is streamed into this task and every append checks for cancellation.
+     * The thread is not interrupted, since an interrupt would also close the
+     * transcript's log file if it came while the log was being written.</p>
+     */
+    private final class CommandTask extends Task<String> implements Appendable {
+        private final String input;
+        private final StringBuilder reply = new StringBuilder();
+        private final TranscriptEntry inputEntry;
+        private final TranscriptEntry replyEntry;
+        /** The reply, once the command has run; only used on the command thread. */
+        private String replyText;
+
+        CommandTask(String input, boolean cancellable) {
+            this.input = input;
+            inputEntry = transcript.add(true, input);
+            replyEntry = transcript.addPending(cancellable ? () -> cancel(false) : null);
+            setOnSucceeded(event -> showReply(getValue()));
+            setOnFailed(event -> showReply("Something went wrong: " + getException().getMessage()));
+            setOnCancelled(event -> showReply(Ui.cancelledMessage()));
+        }
+
+        @Override
+        protected String call() {
+            try {
+                chatty.getResponse(input, this, cursor, this::isCancelled);
+                replyText = reply.toString();
+            } catch (InterruptedIOException e) {
+                replyText = Ui.cancelledMessage();
+            } catch (IOException e) {
+                replyText = "File error: " + e.getMessage();
+            }
+            return replyText;
+        }
+
+        /**
+         * Records the input and the reply, which is the cancelled message if the
+         * command was cancelled while it was still queued.
+         */
+        void record() {
+            MainWindow.this.record(inputEntry, input);
+            MainWindow.this.record(replyEntry, replyText != null ? replyText : Ui.cancelledMessage());
+        }
+
+        private void showReply(String text) {
+            transcript.complete(replyEntry, text);
+            showLatest();
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            checkCancelled();
+            reply.append(text);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            checkCancelled();
+            reply.append(text, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            checkCancelled();
+            reply.append(c);
+            return this;
+        }
+
+        private void checkCancelled() throws InterruptedIOException {
+            if (isCancelled()) {
+                throw new InterruptedIOException("Command cancelled");
+            }
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package chatty;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of running a batch of commands with {@link Chatty#executeBatch}.
+ *
+ * <p>Holds Chatty's reply to every command in the order the commands were given,
+ * along with how long the batch took.</p>
+ */
+public final class BatchResult {
+    private final List<String> replies;
+    private final long elapsedNanos;
+
+    BatchResult(List<String> replies, long elapsedNanos) {
+        this.replies = Collections.unmodifiableList(replies);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns Chatty's reply to each command, including error messages for
+     * commands that could not be executed.
+     */
+    public List<String> getReplies() {
+        return replies;
+    }
+
+    /**
+     * Returns the number of commands executed.
+     */
+    public int getCommandCount() {
+        return replies.size();
+    }
+
+    /**
+     * Returns the time taken to execute and save the batch, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of commands executed per second of elapsed time.
+     */
+    public double getCommandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : replies.size() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Executed %d command(s) in %.1f ms (%.0f commands/sec)",
+                getCommandCount(), elapsedNanos / 1e6, getCommandsPerSecond());
+    }
+}
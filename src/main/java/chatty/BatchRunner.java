@@ -0,0 +1,83 @@
+package chatty;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs Chatty without the GUI over a script of commands, one per line.
+ *
+ * <p>Usage: {@code --batch [file] [--flush-every <n>]}. Commands are read from
+ * the file, or from standard input if no file is given, and executed with
+ * {@link Chatty#executeBatch(Iterable, int)}. Each reply is printed to standard
+ * output and the throughput of the batch to standard error.</p>
+ */
+public class BatchRunner {
+    public static final String BATCH_FLAG = "--batch";
+    private static final String FLUSH_FLAG = "--flush-every";
+
+    public static void main(String[] args) {
+        Path file = null;
+        int flushInterval = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals(BATCH_FLAG)) {
+                    continue;
+                }
+                if (args[i].equals(FLUSH_FLAG) && i + 1 < args.length) {
+                    flushInterval = Integer.parseInt(args[++i]);
+                } else if (file == null && !args[i].startsWith("--")) {
+                    file = Path.of(args[i]);
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Usage: " + BATCH_FLAG + " [file] [" + FLUSH_FLAG + " <n>]");
+            System.exit(2);
+            return;
+        }
+
+        try (Reader input = file == null
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            run(new Chatty(), input, flushInterval, output, System.err);
+        } catch (IOException | ChattyExceptions e) {
+            System.err.println("Something went wrong: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Executes every line of the input as one batch and writes the replies.
+     *
+     * @param chatty        the Chatty instance to run the commands on
+     * @param input         the commands, one per line
+     * @param flushInterval the number of commands between saves, or zero to save only at the end
+     * @param output        where the replies are written
+     * @param report        where the throughput of the batch is printed
+     * @return the result of the batch
+     * @throws IOException if the input cannot be read, or the replies or task list cannot be written
+     */
+    public static BatchResult run(Chatty chatty, Reader input, int flushInterval, Writer output, PrintStream report)
+            throws IOException {
+        BufferedReader reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        Iterable<String> lines = reader.lines()::iterator;
+        BatchResult result = chatty.executeBatch(lines, flushInterval);
+        for (String reply : result.getReplies()) {
+            output.write(reply);
+        }
+        output.flush();
+        report.println(result);
+        return result;
+    }
+}
@@ -1,14 +1,25 @@
 package chatty;
 
+import chatty.parser.CommandLine;
+import chatty.parser.ListCursor;
 import chatty.parser.Parser;
 import chatty.storage.Storage;
 import chatty.task.Task;
 import chatty.task.TaskList;
 import chatty.ui.Ui;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
 
 /**
  * The main entry point of the Chatty application.
@@ -16,6 +27,21 @@ import java.util.Scanner;
  * <p>{@code Chatty} coordinates user input, command parsing, task management,
  * storage operations, and user interface output. It runs an input-processing
  * loop until the user exits the application.</p>
+ *
+ * <p>A {@code Chatty} can be used from many threads at once, such as the GUI
+ * and the connections of a {@link CommandServer}. Commands that change the task
+ * list are queued to a single writer thread, which runs them one at a time in
+ * the order they arrive, each holding the write lock of the list.</p>
+ *
+ * <p>Read-only commands run on the calling thread. {@code find} and {@code due}
+ * search the live list under its read lock, so they use the indexes the writer
+ * keeps up to date rather than building new ones, and write their reply after
+ * the lock is released. A page of {@code list} is read the same way. Only a
+ * {@code list} of the whole list, which may take long to render, reads an
+ * immutable {@link TaskList#snapshot() snapshot} without a lock instead. The
+ * snapshot is taken by the writer thread when it is first needed after a
+ * change, and shares the storage of the list rather than copying every task.
+ * Either way a caller always sees its own earlier changes.</p>
  */
 public class Chatty {
     /**
@@ -36,24 +62,419 @@ public class Chatty {
         UNKNOWN // fallback for invalid commands
     }
 
+    /** How long the writer thread waits for more commands before it exits. */
+    private static final long WRITER_KEEP_ALIVE_SECONDS = 30;
+
+    /** The live task list, changed only on the writer thread. */
     private final TaskList taskList;
 
+    /**
+     * Held for writing by the writer thread while it changes the list, and for
+     * reading by threads searching it.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Runs every command that may change the task list, one at a time in arrival order. */
+    private final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1,
+            WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                Thread thread = new Thread(task, "chatty-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * An immutable copy of the task list for read-only commands, or {@code null}
+     * if the list has changed since it was taken.
+     */
+    private volatile TaskList snapshot;
+
+    /** Replies to {@code find} and {@code due}, shared by every client. */
+    private final QueryCache queryCache = new QueryCache(QueryCache.DEFAULT_CAPACITY);
+
+    /** The place in the list of the one client that does not bring its own cursor. */
+    private final ListCursor cursor = new ListCursor();
+
     public Chatty() throws IOException, ChattyExceptions {
-        taskList = Storage.load();
+        this(Storage.load());
+    }
+
+    Chatty(TaskList taskList) {
+        this.taskList = taskList;
+        writer.allowCoreThreadTimeOut(true);
     }
 
     public String getResponse(String input) {
+        return getResponse(input, cursor);
+    }
+
+    /**
+     * Executes one line of input from a client with its own place in the list.
+     *
+     * @param input  the line typed by the user
+     * @param cursor the client's place in the list, for {@code list next}
+     * @return Chatty's reply
+     */
+    public String getResponse(String input, ListCursor cursor) {
+        StringBuilder response = new StringBuilder();
+        try {
+            getResponse(input, response, cursor);
+        } catch (IOException e) {
+            return "File error: " + e.getMessage();
+        }
+        return response.toString();
+    }
+
+    /**
+     * Executes one line of user input and writes Chatty's reply into the given sink.
+     *
+     * <p>Replies that list tasks are streamed line by line, so a front end can pass
+     * a {@code Writer} to show a long list without building it as one {@code String}.
+     * Errors in the user's command are written as the reply.</p>
+     *
+     * @param input the line typed by the user
+     * @param out   the sink the reply is written into
+     * @throws IOException if the task list cannot be saved or the sink cannot be written to
+     */
+    public void getResponse(String input, Appendable out) throws IOException {
+        getResponse(input, out, cursor);
+    }
+
+    /**
+     * Executes one line of input from a client with its own place in the list,
+     * and writes Chatty's reply into the given sink.
+     *
+     * @param input  the line typed by the user
+     * @param out    the sink the reply is written into
+     * @param cursor the client's place in the list, for {@code list next}
+     * @throws IOException if the task list cannot be saved or the sink cannot be written to
+     * @see #getResponse(String, Appendable)
+     */
+    public void getResponse(String input, Appendable out, ListCursor cursor) throws IOException {
+        getResponse(input, out, cursor, () -> false);
+    }
+
+    /**
+     * Executes one line of input as {@link #getResponse(String, Appendable, ListCursor)}
+     * does, giving up on a {@code find} or {@code due} query once it is cancelled.
+     *
+     * <p>The query checks for cancellation while it searches the list, including
+     * while it builds an index. Other commands are not cancelled; a front end can
+     * stop a long reply by failing to take it, as the sink's {@code append} may
+     * throw.</p>
+     *
+     * @param input     the line typed by the user
+     * @param out       the sink the reply is written into
+     * @param cursor    the client's place in the list, for {@code list next}
+     * @param cancelled returns {@code true} once the query should stop
+     * @throws InterruptedIOException if the query was cancelled before its reply was written
+     * @throws IOException            if the task list cannot be saved or the sink cannot be written to
+     */
+    public void getResponse(String input, Appendable out, ListCursor cursor, BooleanSupplier cancelled)
+            throws IOException {
+        CommandLine line = Parser.tokenize(input);
+        if (line.count() > 0 && isReadOnly(line.command())) {
+            try {
+                if (line.command() == Command.FIND || line.command() == Command.DUE) {
+                    answerQuery(line, out, cancelled);
+                } else if (!Parser.listsWholeList(line, cursor)) {
+                    listPage(line, cursor, out);
+                } else {
+                    TaskList current = snapshot;
+                    if (current == null) {
+                        current = onWriter(this::takeSnapshot);
+                    }
+                    Parser.executeCommand(line.command(), current, line, cursor, out);
+                }
+            } catch (ChattyExceptions e) {
+                out.append(e.getMessage());
+            }
+            return;
+        }
+        // the writer gets its own copy of the tokens, as this thread's line is reset by its next command
+        CommandLine tokens = line.copy();
+        out.append(onWriter(() -> {
+            StringBuilder reply = new StringBuilder();
+            execute(tokens, reply, cursor);
+            return reply;
+        }));
+    }
+
+    /**
+     * Answers a {@code list} command that shows a page by reading the tasks on the
+     * page from the live list under the read lock, and writes the reply after the
+     * lock is released. Tasks are replaced rather than changed, so the page read
+     * stays as it was.
+     */
+    private void listPage(CommandLine line, ListCursor cursor, Appendable out) throws ChattyExceptions, IOException {
+        Parser.QueryReply page;
+        lock.readLock().lock();
+        try {
+            page = Parser.executeListPage(taskList, line, cursor);
+        } finally {
+            lock.readLock().unlock();
+        }
+        page.writeTo(out);
+    }
+
+    /**
+     * Answers a {@code find} or {@code due} query from the query cache, or runs it
+     * on the live list under the read lock and caches the reply. The reply is
+     * streamed into the sink as it is rendered, after the lock is released, and
+     * copied for the cache along the way.
+     */
+    private void answerQuery(CommandLine line, Appendable out, BooleanSupplier cancelled)
+            throws ChattyExceptions, IOException {
+        String query = queryKey(line);
+        long modificationCount;
+        String cached;
+        Parser.QueryReply result = null;
+        lock.readLock().lock();
+        try {
+            modificationCount = taskList.getModificationCount();
+            cached = queryCache.get(query, modificationCount);
+            if (cached == null) {
+                result = Parser.executeQuery(line.command(), taskList, line, cancelled);
+            }
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("Command cancelled");
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        CopyingAppendable copy = new CopyingAppendable(out, QueryCache.MAX_REPLY_CHARS);
+        result.writeTo(copy);
+        String reply = copy.getCopy();
+        if (reply != null) {
+            queryCache.put(query, modificationCount, reply);
+        }
+    }
+
+    /**
+     * Returns a query with its command in lower case and its words separated by
+     * single spaces, so that queries typed differently but read the same way
+     * share a cache entry.
+     */
+    private static String queryKey(CommandLine line) {
+        StringBuilder key = new StringBuilder(line.input().length());
+        key.append(line.command().name().toLowerCase());
+        for (int i = 1; i < line.count(); i++) {
+            key.append(' ').append(line.input(), line.start(i), line.end(i));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the hit rate and other statistics of the cache of {@code find} and
+     * {@code due} replies.
+     *
+     * @return the statistics so far
+     */
+    public QueryCache.Stats getQueryCacheStats() {
+        return queryCache.stats();
+    }
+
+    /**
+     * Returns whether a command only reads the task list, so that it runs on a
+     * snapshot and can be abandoned part way without leaving anything changed.
+     *
+     * @param command the command to check
+     * @return {@code true} for {@code list}, {@code find} and {@code due}
+     */
+    public static boolean isReadOnly(Command command) {
+        return command == Command.LIST || command == Command.FIND || command == Command.DUE;
+    }
+
+    /**
+     * Executes one tokenized command on the live task list. Only called on the writer thread.
+     */
+    private void execute(CommandLine line, Appendable out, ListCursor cursor) throws IOException {
         try {
-            if (input.isBlank()) {
+            if (line.count() == 0) {
                 ChattyExceptions.emptyCommand();
             }
 
-            Command command = Parser.parseCommand(input);
-            return Parser.executeCommand(command, taskList, input);
+            // Storage's persistence thread locks the list while saving it
+            lock.writeLock().lock();
+            try {
+                synchronized (taskList) {
+                    Parser.executeCommand(line.command(), taskList, line, cursor, out);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
         } catch (ChattyExceptions e) {
-            return e.getMessage();
-        } catch (IOException e) {
-            return "File error: " + e.getMessage();
+            out.append(e.getMessage());
+        } finally {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Returns the current snapshot, taking a new one if the list has changed.
+     * Only called on the writer thread, so no change can happen meanwhile.
+     */
+    private TaskList takeSnapshot() {
+        TaskList current = snapshot;
+        if (current == null) {
+            current = taskList.snapshot();
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * Runs work on the writer thread, after every command queued before it, and
+     * waits for its result.
+     *
+     * @throws IOException if the work throws one, or if the caller is interrupted
+     *                     while waiting, in which case the work still runs
+     */
+    private <T> T onWriter(Callable<T> work) throws IOException {
+        Future<T> result = writer.submit(work);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the task list");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Executes many lines of input, saving the task list only once at the end.
+     *
+     * @param lines the commands to execute; blank lines are skipped
+     * @return the reply to every command and the throughput of the batch
+     * @throws IOException if the task list cannot be saved
+     * @see #executeBatch(Iterable, int)
+     */
+    public BatchResult executeBatch(Iterable<String> lines) throws IOException {
+        return executeBatch(lines, 0);
+    }
+
+    /**
+     * Executes many lines of input, such as tasks imported from another system,
+     * without writing to disk after every command.
+     *
+     * <p>Changes are buffered and saved every {@code flushInterval} commands and
+     * once more at the end, so a batch of thousands of commands costs a handful of
+     * writes. Commands that fail are answered with their error message and do not
+     * stop the batch. If saving fails, the changes made so far are still saved
+     * before the exception is thrown.</p>
+     *
+     * <p>The whole batch runs as one unit on the writer thread, so commands from
+     * other threads are not interleaved with it.</p>
+     *
+     * @param lines         the commands to execute; blank lines are skipped
+     * @param flushInterval the number of commands between saves, or zero to save
+     *                      only at the end
+     * @return the reply to every command and the throughput of the batch
+     * @throws IOException if the task list cannot be saved
+     */
+    public BatchResult executeBatch(Iterable<String> lines, int flushInterval) throws IOException {
+        assert lines != null : "Batch lines should not be null";
+        assert flushInterval >= 0 : "Flush interval cannot be negative";
+
+        return onWriter(() -> runBatch(lines, flushInterval));
+    }
+
+    private BatchResult runBatch(Iterable<String> lines, int flushInterval) throws IOException {
+        ArrayList<String> replies = new ArrayList<>();
+        StringBuilder reply = new StringBuilder();
+        ListCursor batchCursor = new ListCursor();
+        long start = System.nanoTime();
+        // queries wait for the whole batch rather than seeing part of it
+        lock.writeLock().lock();
+        Storage.beginBatch();
+        try {
+            for (String line : lines) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                reply.setLength(0);
+                execute(Parser.tokenize(line), reply, batchCursor);
+                replies.add(reply.toString());
+                if (flushInterval > 0 && replies.size() % flushInterval == 0) {
+                    Storage.flushBatch(taskList);
+                }
+            }
+        } finally {
+            try {
+                Storage.endBatch(taskList);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return new BatchResult(replies, System.nanoTime() - start);
+    }
+
+    /**
+     * Passes everything appended on to another sink, and keeps a copy of it
+     * until the copy grows longer than a limit.
+     */
+    private static final class CopyingAppendable implements Appendable {
+        private final Appendable out;
+        private final int limit;
+        private StringBuilder copy = new StringBuilder();
+
+        CopyingAppendable(Appendable out, int limit) {
+            this.out = out;
+            this.limit = limit;
+        }
+
+        /**
+         * Returns everything appended, or {@code null} if it grew past the limit.
+         */
+        String getCopy() {
+            return copy == null ? null : copy.toString();
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            out.append(text);
+            return keep(text, 0, text.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            out.append(text, start, end);
+            return keep(text, start, end);
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            if (copy != null) {
+                copy.append(c);
+                checkLimit();
+            }
+            return this;
+        }
+
+        private Appendable keep(CharSequence text, int start, int end) {
+            if (copy != null) {
+                copy.append(text, start, end);
+                checkLimit();
+            }
+            return this;
+        }
+
+        private void checkLimit() {
+            if (copy.length() > limit) {
+                copy = null;
+            }
         }
     }
 }
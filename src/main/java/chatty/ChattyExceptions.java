@@ -14,6 +14,14 @@ public class ChattyExceptions extends Exception {
         throw new ChattyExceptions(String.format("Invalid task number!%n"));
     }
 
+    public static void unknownTaskId(int id) throws ChattyExceptions {
+        throw new ChattyExceptions(String.format("There is no task with ID #%d!%n", id));
+    }
+
+    public static void invalidPage() throws ChattyExceptions {
+        throw new ChattyExceptions(String.format("Invalid page. Use: list [page] [size] or list next%n"));
+    }
+
     public static void missingTaskNumber() throws ChattyExceptions {
         throw new ChattyExceptions(String.format("Please specify the task number after the command.%n"));
     }
@@ -46,4 +54,12 @@ public class ChattyExceptions extends Exception {
     public static void invalidDateFormat() throws ChattyExceptions {
         throw new ChattyExceptions((String.format("Invalid date format. Dates should be formatted as yyyy-mm-dd%n")));
     }
+
+    public static void dateOutOfRange() throws ChattyExceptions {
+        throw new ChattyExceptions(String.format("That date is too far from today to be saved.%n"));
+    }
+
+    public static void invalidDateRange() throws ChattyExceptions {
+        throw new ChattyExceptions(String.format("The end date cannot be before the start date.%n"));
+    }
 }
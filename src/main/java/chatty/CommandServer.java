@@ -0,0 +1,296 @@
+package chatty;
+
+import chatty.parser.ListCursor;
+import chatty.storage.Storage;
+import chatty.ui.Ui;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves Chatty to other processes on the same machine over a socket, so that
+ * several clients share one task list.
+ *
+ * <p>Usage: {@code --server [port | socket path]}. Given a port, or nothing, the
+ * server listens on that TCP port of the loopback interface only, port
+ * {@value #DEFAULT_PORT} by default. Given a path, it listens on a Unix-domain
+ * socket at that path.</p>
+ *
+ * <p>The protocol is line-oriented and maps directly to
+ * {@link Chatty#getResponse(String)}: the client sends one command per line, and
+ * the server answers with the lines of the reply followed by a line holding a
+ * single {@code "."}. A reply line that starts with a dot is sent with an extra
+ * dot in front, as in SMTP, so that it cannot be taken for the end of the reply.
+ * Sending {@code bye}, or closing the socket, ends the connection. Each
+ * connection pages through the list with its own {@code list next}.</p>
+ *
+ * <p>Each connection is served on its own virtual thread when the runtime has
+ * them (Java 21 and later), and on a platform thread with a small stack
+ * otherwise. An idle connection holds only a small read buffer, so thousands of
+ * them cost little memory. Commands run as described in {@link Chatty}, and the
+ * reply is written to the socket only after the command is done, so a slow client
+ * never holds up the others.</p>
+ */
+public class CommandServer implements Closeable {
+    public static final String SERVER_FLAG = "--server";
+    public static final int DEFAULT_PORT = 7878;
+    static final String END_OF_REPLY = ".";
+    private static final String EXIT_COMMAND = "bye";
+    private static final int BACKLOG = 1024;
+    /** Buffer sizes per connection, kept small because most connections are idle. */
+    private static final int READ_BUFFER_BYTES = 128;
+    private static final int READ_BUFFER_CHARS = 128;
+    private static final int WRITE_BUFFER_BYTES = 512;
+    /** Stack size of a connection thread when virtual threads are not available. */
+    private static final long PLATFORM_THREAD_STACK_BYTES = 256 * 1024;
+
+    private final Chatty chatty;
+    private final ServerSocketChannel server;
+    private final Path socketFile;
+    private final ExecutorService connectionThreads = newConnectionExecutor();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Opens a server socket bound to the given address. Commands are not served
+     * until {@link #serve()} or {@link #start()} is called.
+     *
+     * <p>A stale Unix-domain socket file left at the address by a server that did
+     * not shut down cleanly is replaced; any other file there is left alone and
+     * makes binding fail.</p>
+     *
+     * @param chatty  the Chatty instance every connection runs its commands on
+     * @param address a loopback {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}
+     * @throws IOException if the socket cannot be opened or bound
+     */
+    public CommandServer(Chatty chatty, SocketAddress address) throws IOException {
+        assert chatty != null : "Chatty should not be null";
+        this.chatty = chatty;
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            socketFile = unixAddress.getPath();
+            deleteStaleSocket(socketFile);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            socketFile = null;
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address, BACKLOG);
+    }
+
+    public static void main(String[] args) {
+        SocketAddress address;
+        try {
+            address = parseAddress(args.length > 1 ? args[1] : null);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Usage: " + SERVER_FLAG + " [port | socket path]");
+            System.exit(2);
+            return;
+        }
+
+        try {
+            Chatty chatty = new Chatty();
+            CommandServer server = new CommandServer(chatty, address);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                    System.err.println("Query cache: " + chatty.getQueryCacheStats());
+                    Storage.flush(); // changes may still be queued for the persistence thread
+                } catch (IOException e) {
+                    System.err.println("Something went wrong: " + e.getMessage());
+                }
+            }));
+            System.err.println("Chatty is listening on " + server.getAddress());
+            server.serve();
+        } catch (IOException | ChattyExceptions e) {
+            System.err.println("Something went wrong: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Returns the address to listen on for the argument after {@link #SERVER_FLAG}:
+     * a loopback TCP port for a number or nothing, and a Unix-domain socket otherwise.
+     *
+     * @param argument the port or socket path, or {@code null} for the default port
+     * @return the address to bind the server to
+     * @throws IllegalArgumentException if the port is out of range
+     */
+    static SocketAddress parseAddress(String argument) {
+        if (argument == null) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), DEFAULT_PORT);
+        }
+        if (!argument.isEmpty() && argument.chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(argument));
+        }
+        return UnixDomainSocketAddress.of(argument);
+    }
+
+    /**
+     * Returns the address the server is bound to, which includes the actual port
+     * if it was bound to port 0.
+     *
+     * @return the bound address
+     * @throws IOException if the server has been closed
+     */
+    public SocketAddress getAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    /**
+     * Accepts connections on the calling thread until the server is closed.
+     *
+     * @throws IOException if accepting a connection fails for a reason other than the server being closed
+     */
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel connection;
+            try {
+                connection = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            connections.add(connection);
+            connectionThreads.execute(() -> handle(connection));
+        }
+    }
+
+    /**
+     * Accepts connections on a new thread, for running the server alongside other work.
+     *
+     * @return this server
+     */
+    public CommandServer start() {
+        Thread acceptor = new Thread(() -> {
+            try {
+                serve();
+            } catch (IOException e) {
+                System.err.println("Something went wrong: " + e.getMessage());
+            }
+        }, "chatty-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     * Stops accepting connections and closes every open one.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (SocketChannel connection : connections) {
+            connection.close();
+        }
+        connectionThreads.shutdown();
+        if (socketFile != null) {
+            Files.deleteIfExists(socketFile);
+        }
+    }
+
+    /**
+     * Answers the commands of one connection until the client leaves.
+     */
+    private void handle(SocketChannel connection) {
+        try (connection;
+             BufferedReader in = new BufferedReader(Channels.newReader(connection,
+                     StandardCharsets.UTF_8.newDecoder(), READ_BUFFER_BYTES), READ_BUFFER_CHARS);
+             Writer out = Channels.newWriter(connection, StandardCharsets.UTF_8.newEncoder(), WRITE_BUFFER_BYTES)) {
+            ListCursor cursor = new ListCursor();
+            String command;
+            while ((command = in.readLine()) != null && !command.strip().equalsIgnoreCase(EXIT_COMMAND)) {
+                writeReply(answer(command, cursor), out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away or the server is closing; either way the connection is done
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * Returns Chatty's reply to one command, or an error reply if the command
+     * failed unexpectedly, so that a bug in one command does not cost the client
+     * its connection.
+     */
+    private String answer(String command, ListCursor cursor) {
+        try {
+            return chatty.getResponse(command, cursor);
+        } catch (RuntimeException e) {
+            System.err.println("Something went wrong answering \"" + command + "\": " + e);
+            return Ui.unexpectedErrorMessage(e);
+        }
+    }
+
+    /**
+     * Writes a reply line by line with {@code '\n'} line ends, dot-stuffed and
+     * followed by the end-of-reply line.
+     */
+    static void writeReply(String reply, Writer out) throws IOException {
+        int start = 0;
+        while (start < reply.length()) {
+            int newline = reply.indexOf('\n', start);
+            int end = newline < 0 ? reply.length() : newline;
+            int lineEnd = end > start && reply.charAt(end - 1) == '\r' ? end - 1 : end;
+            if (reply.startsWith(END_OF_REPLY, start)) {
+                out.write(END_OF_REPLY);
+            }
+            out.write(reply, start, lineEnd - start);
+            out.write('\n');
+            start = end + 1;
+        }
+        out.write(END_OF_REPLY);
+        out.write('\n');
+    }
+
+    /**
+     * Deletes a Unix-domain socket file left behind at the path, and nothing else.
+     */
+    private static void deleteStaleSocket(Path path) throws IOException {
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)
+                && Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Returns an executor that runs each task on a new virtual thread if the
+     * runtime has them, looked up reflectively so that the server still runs on
+     * older runtimes.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, "chatty-connection-" + threadCount.incrementAndGet(),
+                        PLATFORM_THREAD_STACK_BYTES);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package chatty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of the replies to {@code find} and
+ * {@code due} queries.
+ *
+ * <p>Every reply is tagged with the {@link chatty.task.TaskList#getModificationCount()
+ * modification count} of the list it was computed from. Any change to the list
+ * raises the count, so the first lookup made with a higher count drops every
+ * cached reply at once, and a lookup made with a lower count, from a snapshot
+ * taken before the change, is a miss that is not cached. Replies longer than
+ * {@value #MAX_REPLY_CHARS} characters are not cached, which bounds the memory
+ * the cache holds.</p>
+ *
+ * <p>The cache is shared by every thread answering queries.</p>
+ */
+public final class QueryCache {
+    /** The number of replies kept before the least recently used is evicted. */
+    static final int DEFAULT_CAPACITY = 128;
+    /** The longest reply that is cached. */
+    static final int MAX_REPLY_CHARS = 64 * 1024;
+
+    /**
+     * The number of lookups answered from the cache and otherwise, and of replies
+     * dropped because the cache was full or the list changed.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int size;
+
+        Stats(long hits, long misses, long evictions, long invalidations, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the number of replies evicted to make room for others.
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Returns the number of replies dropped because the task list changed.
+         */
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        /**
+         * Returns the number of replies cached now.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the fraction of lookups answered from the cache, or 0 if there were none.
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hit(s), %d miss(es) (%.1f%% hit rate), %d evicted, %d invalidated, %d cached",
+                    hits, misses, getHitRate() * 100, evictions, invalidations, size);
+        }
+    }
+
+    private final Map<String, String> replies;
+    /** The modification count of the list every cached reply was computed from. */
+    private long modificationCount;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    QueryCache(int capacity) {
+        assert capacity > 0 : "Capacity should be positive";
+        replies = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached reply to a query of a list with the given modification count.
+     *
+     * @param query             the query, normalized so that equal queries are equal strings
+     * @param modificationCount the modification count of the list queried
+     * @return the reply, or {@code null} if it is not cached
+     */
+    synchronized String get(String query, long modificationCount) {
+        if (modificationCount > this.modificationCount) {
+            invalidations += replies.size();
+            replies.clear();
+            this.modificationCount = modificationCount;
+        }
+        String reply = modificationCount == this.modificationCount ? replies.get(query) : null;
+        if (reply == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return reply;
+    }
+
+    /**
+     * Caches the reply to a query, unless the list has changed since the query
+     * was answered or the reply is too long.
+     *
+     * @param query             the query, as given to {@link #get(String, long)}
+     * @param modificationCount the modification count of the list queried
+     * @param reply             the reply
+     */
+    synchronized void put(String query, long modificationCount, String reply) {
+        if (modificationCount == this.modificationCount && reply.length() <= MAX_REPLY_CHARS) {
+            replies.put(query, reply);
+        }
+    }
+
+    /**
+     * Returns the hit rate and other counts of the cache so far.
+     *
+     * @return the statistics
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, invalidations, replies.size());
+    }
+}
@@ -0,0 +1,205 @@
+package chatty.parser;
+
+import chatty.Chatty;
+
+import java.util.Arrays;
+
+/**
+ * A view of one line of user input as whitespace-separated tokens.
+ *
+ * <p>The line is scanned once and each token is recorded as a start and end
+ * index into the input, so tokens can be compared and parsed without splitting
+ * the input into new strings. A {@code CommandLine} can be {@linkplain #reset
+ * reset} to a new input and reuses its index arrays, so tokenizing a command
+ * normally allocates nothing.</p>
+ *
+ * <p>Whitespace means the same characters as the regular expression
+ * {@code \s}, so tokens are exactly those that {@code input.trim().split("\\s+")}
+ * would produce.</p>
+ */
+public final class CommandLine {
+    private static final Chatty.Command[] COMMANDS_BY_HASH = buildCommandTable();
+
+    private String input = "";
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+
+    /**
+     * Creates a token view of the given input.
+     *
+     * @param input the line typed by the user
+     * @return the tokens of the line
+     */
+    public static CommandLine of(String input) {
+        return new CommandLine().reset(input);
+    }
+
+    /**
+     * Tokenizes a new line of input, replacing the tokens of the previous one.
+     *
+     * @param input the line typed by the user
+     * @return this view
+     */
+    public CommandLine reset(String input) {
+        assert input != null : "Input to tokenize should not be null";
+        this.input = input;
+        count = 0;
+        int length = input.length();
+        int i = 0;
+        while (true) {
+            while (i < length && isWhitespace(input.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                return this;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = i;
+            while (i < length && !isWhitespace(input.charAt(i))) {
+                i++;
+            }
+            ends[count++] = i;
+        }
+    }
+
+    /**
+     * Returns a copy of the tokens that is not changed when this view is reset,
+     * so a line can be handed to another thread without scanning it again.
+     *
+     * @return the copy
+     */
+    public CommandLine copy() {
+        CommandLine copy = new CommandLine();
+        copy.input = input;
+        copy.starts = Arrays.copyOf(starts, Math.max(count, 1));
+        copy.ends = Arrays.copyOf(ends, Math.max(count, 1));
+        copy.count = count;
+        return copy;
+    }
+
+    private static boolean isWhitespace(char c) {
+        // the characters matched by \s
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Returns the whole line this view was last reset to.
+     */
+    public String input() {
+        return input;
+    }
+
+    /**
+     * Returns the number of tokens in the line.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns the index in the input of the first character of a token.
+     */
+    public int start(int token) {
+        checkToken(token);
+        return starts[token];
+    }
+
+    /**
+     * Returns the index in the input just past the last character of a token.
+     */
+    public int end(int token) {
+        checkToken(token);
+        return ends[token];
+    }
+
+    /**
+     * Returns a token as a new string.
+     */
+    public String token(int token) {
+        return input.substring(start(token), end(token));
+    }
+
+    /**
+     * Returns the input from the start of a token to the end of the last token,
+     * for example the description following a command word.
+     */
+    public String rest(int token) {
+        return input.substring(start(token), ends[count - 1]);
+    }
+
+    /**
+     * Returns whether a token is the given word, ignoring case, without copying it.
+     */
+    public boolean matches(int token, String word) {
+        int start = start(token);
+        return end(token) - start == word.length() && input.regionMatches(true, start, word, 0, word.length());
+    }
+
+    /**
+     * Parses a token as a decimal integer without copying it.
+     *
+     * @throws NumberFormatException if the token is not an integer
+     */
+    public int parseInt(int token) {
+        return Integer.parseInt(input, start(token), end(token), 10);
+    }
+
+    /**
+     * Looks up the command named by the first token, ignoring case.
+     *
+     * <p>Commands are found in a table indexed by a hash of the token's length
+     * and first character, then confirmed with a single region comparison.</p>
+     *
+     * @return the command, or {@link Chatty.Command#UNKNOWN} if the line is
+     *         blank or its first word is not a command
+     */
+    public Chatty.Command command() {
+        if (count == 0) {
+            return Chatty.Command.UNKNOWN;
+        }
+        int start = starts[0];
+        int length = ends[0] - start;
+        int mask = COMMANDS_BY_HASH.length - 1;
+        for (int slot = hash(length, input.charAt(start)) & mask; ; slot = (slot + 1) & mask) {
+            Chatty.Command candidate = COMMANDS_BY_HASH[slot];
+            if (candidate == null) {
+                return Chatty.Command.UNKNOWN;
+            }
+            String name = candidate.name();
+            if (name.length() == length && input.regionMatches(true, start, name, 0, length)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static int hash(int length, char first) {
+        return length * 31 + Character.toUpperCase(first);
+    }
+
+    private static Chatty.Command[] buildCommandTable() {
+        Chatty.Command[] table = new Chatty.Command[32];
+        int mask = table.length - 1;
+        for (Chatty.Command command : Chatty.Command.values()) {
+            if (command == Chatty.Command.UNKNOWN) {
+                continue;
+            }
+            String name = command.name();
+            int slot = hash(name.length(), name.charAt(0)) & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = command;
+        }
+        return table;
+    }
+
+    private void checkToken(int token) {
+        if (token < 0 || token >= count) {
+            throw new IndexOutOfBoundsException("Token " + token + " of " + count);
+        }
+    }
+}
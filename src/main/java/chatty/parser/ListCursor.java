@@ -0,0 +1,99 @@
+package chatty.parser;
+
+import chatty.task.TaskList;
+
+/**
+ * Where one client's {@code list next} continues from, and how many tasks a page
+ * of its {@code list} holds.
+ *
+ * <p>Each front end keeps its own cursor: the GUI and the command line one each,
+ * and the socket server one per connection. A cursor remembers the task that
+ * starts the next page by its stable ID as well as by its position, so the next
+ * page still starts at the same task after tasks before it are added or deleted.
+ * While they are not, which is the usual case, finding it costs a single
+ * {@link TaskList#get(int)}.</p>
+ *
+ * <p>A cursor is used by one thread at a time, except that the page size may be
+ * set from any thread, such as the GUI's as its window is resized.</p>
+ */
+public final class ListCursor {
+    /** The page size of {@code list <page>} when the cursor has none. */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private volatile int pageSize;
+    /** The position of the task that starts the next page, or -1 if no page has been listed. */
+    private int nextPosition = -1;
+    /** The ID of the task that starts the next page, or 0 if there is none. */
+    private int nextId;
+    private boolean reachedEnd;
+    private int lastPageSize;
+
+    /**
+     * Returns the number of tasks {@code list} shows at a time, or 0 if it shows
+     * the whole list.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Sets the number of tasks {@code list} shows at a time.
+     *
+     * @param pageSize the page size, or 0 for {@code list} to show the whole list
+     */
+    public void setPageSize(int pageSize) {
+        assert pageSize >= 0 : "Page size cannot be negative";
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Returns the page size for a {@code list} command that does not give one.
+     */
+    int pageSizeOrDefault() {
+        int size = pageSize;
+        return size > 0 ? size : DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Returns the size of the last page listed, for {@code list next}.
+     */
+    int lastPageSize() {
+        return lastPageSize > 0 ? lastPageSize : pageSizeOrDefault();
+    }
+
+    /**
+     * Returns the position the next page starts at in the given list: that of the
+     * task that followed the last page, found by its ID if tasks have moved, or
+     * the start of the list if no page has been listed.
+     *
+     * @param tasks the list being paged through
+     * @return the position, which is the size of the list if the last page reached its end
+     */
+    int nextPosition(TaskList tasks) {
+        if (nextPosition < 0) {
+            return 0;
+        }
+        if (reachedEnd) {
+            return tasks.size();
+        }
+        if (nextId == 0 || nextPosition < tasks.size() && tasks.get(nextPosition).getId() == nextId) {
+            return Math.min(nextPosition, tasks.size());
+        }
+        int moved = tasks.positionOf(nextId);
+        return moved >= 0 ? moved : Math.min(nextPosition, tasks.size());
+    }
+
+    /**
+     * Records that the tasks before {@code end} have been listed, so the next page starts there.
+     *
+     * @param tasks    the list being paged through
+     * @param end      the position after the last task listed
+     * @param pageSize the size of the page listed
+     */
+    void pageListed(TaskList tasks, int end, int pageSize) {
+        nextPosition = end;
+        reachedEnd = end >= tasks.size();
+        nextId = reachedEnd ? 0 : tasks.get(end).getId();
+        lastPageSize = pageSize;
+    }
+}
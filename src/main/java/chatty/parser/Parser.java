@@ -9,9 +9,11 @@ import chatty.ui.Ui;
 import java.io.IOException;
 import java.time.DateTimeException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 /**
  * The {@code Parser} class is responsible for interpreting user input and
@@ -28,7 +30,6 @@ import java.util.List;
  * <p>It also provides utility methods to extract task indices and parse task data from saved files.
  */
 public class Parser {
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd yyyy");
     private static final String BY_FLAG = "/by";
     private static final String FROM_FLAG = "/from";
     private static final String TO_FLAG = "/to";
@@ -40,6 +41,31 @@ public class Parser {
     private static final String FILE_TODO_LABEL = "[T]";
     private static final String FILE_DEADLINE_LABEL = "[D]";
     private static final String FILE_STATUS_SUFFIX = "] ";
+    private static final String DONE_SELECTOR = "done";
+    private static final String ALL_SELECTOR = "all";
+    private static final String DUE_SELECTOR_PREFIX = "due:";
+    private static final char RANGE_SEPARATOR = '-';
+    /** Continues a paged {@code list} where the last page ended. */
+    private static final String NEXT_PAGE = "next";
+    /** Marks a task number as a stable task ID rather than a position, as in {@code #17}. */
+    private static final char TASK_ID_PREFIX = '#';
+    private static final int ISO_DATE_LENGTH = "yyyy-MM-dd".length();
+
+    /** The token view reused for each command parsed on a thread. */
+    private static final ThreadLocal<CommandLine> LINES = ThreadLocal.withInitial(CommandLine::new);
+
+    /**
+     * Tokenizes a line of user input into this thread's reusable {@link CommandLine}.
+     *
+     * <p>The returned view is reset by the next call on the same thread, so it should
+     * only be used to handle the current command.</p>
+     *
+     * @param input the raw input string from the user
+     * @return the tokens of the input
+     */
+    public static CommandLine tokenize(String input) {
+        return LINES.get().reset(input);
+    }
 
     /**
      * Parses a user input string and converts it into a {@link Chatty.Command}.
@@ -52,37 +78,40 @@ public class Parser {
         assert input != null : "Input to parseCommand should not be null";
         assert !input.isBlank(): "Input to parseCommand should not be blank";
 
-        String firstWord = input.split("\\s+")[0].toLowerCase();
-        try {
-            return Chatty.Command.valueOf(firstWord.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            return Chatty.Command.UNKNOWN;
-        }
+        return tokenize(input).command();
     }
 
     /**
      * Parses the task index from a command input string.
      *
+     * <p>Each task is given either by its position in the list, starting at 1, or
+     * by its stable ID after a {@code #}, which stays the same when other tasks
+     * are deleted.</p>
+     *
      * @param input   the raw input string containing the task index
      * @param storage the {@link TaskList} containing current tasks
      * @return the zero-based index of the task
      * @throws ChattyExceptions if the input is missing a task number,
-     *                           if the task number is invalid, or if it's not an integer
+     *                           if the task number is invalid, if no task has the ID,
+     *                           or if it's not an integer
      */
     public static ArrayList<Integer> parseTaskIndex(String input, TaskList storage) throws ChattyExceptions {
-        String[] parts = input.split("\\s+");
         assert !input.isBlank(): "Input to parseTaskIndex should not be blank";
+        return parseTaskIndex(tokenize(input), storage);
+    }
+
+    private static ArrayList<Integer> parseTaskIndex(CommandLine line, TaskList storage) throws ChattyExceptions {
         assert storage != null : "TaskList should not be null";
         assert storage.size() >= 0 : "TaskList size cannot be negative";
 
-        if (parts.length < 2) {
+        if (line.count() < 2) {
             ChattyExceptions.missingTaskNumber();
         }
 
         try {
-            ArrayList<Integer> indexes = new ArrayList<>();
-            for (int i = 1; i < parts.length; i++) {
-                int index = Integer.parseInt(parts[i]) - 1;
+            ArrayList<Integer> indexes = new ArrayList<>(line.count() - 1);
+            for (int i = 1; i < line.count(); i++) {
+                int index = isTaskId(line, i) ? positionOfId(line, i, storage) : line.parseInt(i) - 1;
                 if (index < 0 || index >= storage.size()) {
                     ChattyExceptions.invalidTaskNumber();
                     return new ArrayList<>();
@@ -96,6 +125,95 @@ public class Parser {
         }
     }
 
+    /**
+     * Parses the tasks selected by a {@code mark}, {@code unmark} or {@code delete}
+     * command into a bitmap of their positions.
+     *
+     * <p>Every token after the command selects some tasks, and the result is all
+     * of the tasks any token selects:
+     * <ul>
+     *   <li>{@code 3} or {@code #17}: one task, by position or by ID</li>
+     *   <li>{@code 1-50000}: the tasks at positions 1 to 50000, inclusive</li>
+     *   <li>{@code all}: every task</li>
+     *   <li>{@code done}: every completed task</li>
+     *   <li>{@code due:2026-03-04}: every task due or taking place on that date</li>
+     * </ul>
+     * A range is set in the bitmap in one step, so selecting many tasks never
+     * builds a list of boxed indexes.</p>
+     *
+     * @param input   the raw input string containing the selectors
+     * @param storage the {@link TaskList} containing current tasks
+     * @return the zero-based positions of the selected tasks
+     * @throws ChattyExceptions if the input has no selector, if a task number is
+     *                           invalid or not an integer, or if a date is invalid
+     */
+    public static BitSet parseTaskSelection(String input, TaskList storage) throws ChattyExceptions {
+        assert !input.isBlank(): "Input to parseTaskSelection should not be blank";
+        return parseTaskSelection(tokenize(input), storage);
+    }
+
+    private static BitSet parseTaskSelection(CommandLine line, TaskList storage) throws ChattyExceptions {
+        assert storage != null : "TaskList should not be null";
+
+        if (line.count() < 2) {
+            ChattyExceptions.missingTaskNumber();
+        }
+
+        BitSet selected = new BitSet(storage.size());
+        try {
+            for (int i = 1; i < line.count(); i++) {
+                select(line, i, storage, selected);
+            }
+        } catch (NumberFormatException e) {
+            ChattyExceptions.nonIntegerTaskNumber();
+        }
+        return selected;
+    }
+
+    private static void select(CommandLine line, int token, TaskList storage, BitSet selected)
+            throws ChattyExceptions {
+        String input = line.input();
+        int start = line.start(token);
+        int end = line.end(token);
+        if (line.matches(token, ALL_SELECTOR)) {
+            selected.set(0, storage.size());
+        } else if (line.matches(token, DONE_SELECTOR)) {
+            selected.or(storage.positionsMatching(Task::isComplete));
+        } else if (input.regionMatches(true, start, DUE_SELECTOR_PREFIX, 0, DUE_SELECTOR_PREFIX.length())) {
+            LocalDate date = parseDate(input, start + DUE_SELECTOR_PREFIX.length(), end);
+            selected.or(storage.positionsDueBetween(date, date));
+        } else if (isTaskId(line, token)) {
+            selected.set(positionOfId(line, token, storage));
+        } else {
+            // search from the second character so that a negative number is not a range
+            int separator = input.indexOf(RANGE_SEPARATOR, start + 1);
+            boolean isRange = separator >= 0 && separator < end;
+            int first = Integer.parseInt(input, start, isRange ? separator : end, 10) - 1;
+            int last = isRange ? Integer.parseInt(input, separator + 1, end, 10) - 1 : first;
+            if (first < 0 || last < first || last >= storage.size()) {
+                ChattyExceptions.invalidTaskNumber();
+            }
+            selected.set(first, last + 1);
+        }
+    }
+
+    private static boolean isTaskId(CommandLine line, int token) {
+        return line.input().charAt(line.start(token)) == TASK_ID_PREFIX;
+    }
+
+    /**
+     * Returns the position of the task whose ID follows the {@code #} of the
+     * given token.
+     */
+    private static int positionOfId(CommandLine line, int token, TaskList storage) throws ChattyExceptions {
+        int id = Integer.parseInt(line.input(), line.start(token) + 1, line.end(token), 10);
+        int position = storage.positionOf(id);
+        if (position < 0) {
+            ChattyExceptions.unknownTaskId(id);
+        }
+        return position;
+    }
+
     /**
      * Parses the keyword from a command input string.
      *
@@ -104,13 +222,15 @@ public class Parser {
      * @throws ChattyExceptions if the input is missing the keyword
      */
     public static String parseKeywordToFind(String input) throws ChattyExceptions {
-        String keyword = input.substring(4).trim();
+        return parseKeywordToFind(tokenize(input));
+    }
 
-        if (keyword.isEmpty()) {
+    private static String parseKeywordToFind(CommandLine line) throws ChattyExceptions {
+        if (line.count() < 2) {
             ChattyExceptions.emptyDescription("find command");
         }
 
-        return keyword;
+        return line.rest(1);
     }
 
     /**
@@ -136,14 +256,19 @@ public class Parser {
      * </ul>
      */
     public static Task parseDeadline(String input) throws ChattyExceptions {
+        return parseDeadline(tokenize(input));
+    }
+
+    private static Task parseDeadline(CommandLine line) throws ChattyExceptions {
+        String input = line.input();
         int byIndex = input.indexOf(BY_FLAG);
-        if (byIndex == -1) {
+        if (byIndex == -1 || line.count() < 2 || byIndex < line.start(1)) {
             ChattyExceptions.invalidDeadlineFormat();
         }
-        String DeadlineName = input.substring("deadline ".length(), input.indexOf(BY_FLAG));
+        String DeadlineName = input.substring(line.start(1), byIndex);
         String date = input.substring(byIndex + BY_FLAG.length() + 1);
         try {
-            LocalDate parsedBy = LocalDate.parse(date);
+            LocalDate parsedBy = checkStorable(LocalDate.parse(date));
             return new Deadline(DeadlineName, parsedBy);
         } catch (DateTimeException e) {
             ChattyExceptions.invalidDateFormat();
@@ -174,20 +299,26 @@ public class Parser {
      * </ul>
      */
     public static Task parseEvent(String input) throws ChattyExceptions {
+        return parseEvent(tokenize(input));
+    }
+
+    private static Task parseEvent(CommandLine line) throws ChattyExceptions {
+        String input = line.input();
         int fromIndex = input.indexOf(FROM_FLAG);
         int toIndex = input.indexOf(TO_FLAG);
-        if (fromIndex == -1 || toIndex == -1 || fromIndex >= toIndex) {
+        if (fromIndex == -1 || toIndex == -1 || fromIndex >= toIndex
+                || line.count() < 2 || fromIndex < line.start(1)) {
             ChattyExceptions.invalidEventFormat();
         }
-        String name = input.substring("event ".length(), input.indexOf(FROM_FLAG));
+        String name = input.substring(line.start(1), fromIndex);
         String from = input.substring(fromIndex + FROM_FLAG.length() + 1, toIndex - 1);
         String to = input.substring(toIndex + TO_FLAG.length() + 1);
         if (name.isEmpty() || from.isEmpty() || to.isEmpty()) {
             ChattyExceptions.emptyEventFields();
         }
         try {
-            LocalDate parsedFrom = LocalDate.parse(from);
-            LocalDate parsedTo = LocalDate.parse(to);
+            LocalDate parsedFrom = checkStorable(LocalDate.parse(from));
+            LocalDate parsedTo = checkStorable(LocalDate.parse(to));
             return new Event(name, parsedFrom, parsedTo);
         } catch (DateTimeException e) {
             ChattyExceptions.invalidDateFormat();
@@ -204,16 +335,20 @@ public class Parser {
      * @throws ChattyExceptions if the task description is missing or the input format is invalid
      */
     public static Task parseAddTaskCommand(Chatty.Command command, String input) throws ChattyExceptions {
-        assert command != null: "Command should not be null";
         assert input != null: "Input should not be null";
+        return parseAddTaskCommand(command, tokenize(input));
+    }
 
-        if (input.split("\\s+").length < 2) {
+    private static Task parseAddTaskCommand(Chatty.Command command, CommandLine line) throws ChattyExceptions {
+        assert command != null: "Command should not be null";
+
+        if (line.count() < 2) {
             ChattyExceptions.emptyDescription(command.name().toLowerCase());
         }
         return switch (command) {
-            case DEADLINE -> parseDeadline(input);
-            case EVENT -> parseEvent(input);
-            case TODO -> new Todo(input.substring("todo ".length()));
+            case DEADLINE -> parseDeadline(line);
+            case EVENT -> parseEvent(line);
+            case TODO -> new Todo(line.input().substring(line.start(1)));
             default -> throw new AssertionError("Unreachable code reached in parseAddTaskCommand");
         };
     }
@@ -225,12 +360,12 @@ public class Parser {
      * @param taskName  the name of the task
      * @return a {@link Deadline} object corresponding to the input command
      */
-    private static Deadline parseDeadlineFromFile(String taskDescription, String taskName) {
+    private static Deadline parseDeadlineFromFile(String taskDescription, String taskName) throws ChattyExceptions {
         String date = taskDescription.substring(
                         taskDescription.indexOf(FILE_BY_PREFIX) + FILE_BY_PREFIX.length(),
                         taskDescription.length() - 1)
                 .trim();
-        return new Deadline(taskName, LocalDate.parse(date, formatter));
+        return new Deadline(taskName, checkStorable(LocalDate.parse(date, Task.DATE_FORMAT)));
     }
 
     /**
@@ -240,7 +375,7 @@ public class Parser {
      * @param taskName  the name of the task
      * @return a {@link Event} object corresponding to the input command
      */
-    private static Event parseEventFromFile(String taskDescription, String taskName) {
+    private static Event parseEventFromFile(String taskDescription, String taskName) throws ChattyExceptions {
         String from = taskDescription.substring(
                 taskDescription.indexOf(FILE_FROM_PREFIX) + FILE_FROM_PREFIX.length(),
                 taskDescription.indexOf(FILE_EVENT_SEPARATOR))
@@ -251,8 +386,8 @@ public class Parser {
                 .trim();
         return new Event(
                 taskName,
-                LocalDate.parse(from, formatter),
-                LocalDate.parse(to, formatter)
+                checkStorable(LocalDate.parse(from, Task.DATE_FORMAT)),
+                checkStorable(LocalDate.parse(to, Task.DATE_FORMAT))
         );
     }
 
@@ -295,10 +430,85 @@ public class Parser {
      * @throws ChattyExceptions if the date format is invalid or the input is malformed
      */
     public static LocalDate parseDateToFind(String input) throws ChattyExceptions {
-        if (input.split("\\s+").length < 2) {
+        return parseDateToFind(tokenize(input));
+    }
+
+    private static LocalDate parseDateToFind(CommandLine line) throws ChattyExceptions {
+        if (line.count() < 2) {
+            ChattyExceptions.emptyDescription("due");
+        }
+        return parseDate(line, 1);
+    }
+
+    /**
+     * Parses the two dates of a {@code due <from> <to>} command.
+     *
+     * @param input the raw input string from the user
+     * @return the start and end dates of the range, in that order
+     * @throws ChattyExceptions if either date is missing or invalid, or the range ends before it starts
+     */
+    public static LocalDate[] parseDateRangeToFind(String input) throws ChattyExceptions {
+        return parseDateRangeToFind(tokenize(input));
+    }
+
+    private static LocalDate[] parseDateRangeToFind(CommandLine line) throws ChattyExceptions {
+        if (line.count() < 3) {
             ChattyExceptions.emptyDescription("due");
         }
-        return LocalDate.parse(input.split("\\s+")[1]);
+        LocalDate from = parseDate(line, 1);
+        LocalDate to = parseDate(line, 2);
+        if (to.isBefore(from)) {
+            ChattyExceptions.invalidDateRange();
+        }
+        return new LocalDate[] {from, to};
+    }
+
+    /**
+     * Parses a token as an ISO {@code yyyy-MM-dd} date. Dates in exactly that form
+     * are read straight from the input; anything else goes through
+     * {@link LocalDate#parse} so that it is accepted or rejected in the same way.
+     */
+    private static LocalDate parseDate(CommandLine line, int token) throws ChattyExceptions {
+        return parseDate(line.input(), line.start(token), line.end(token));
+    }
+
+    private static LocalDate parseDate(String input, int start, int end) throws ChattyExceptions {
+        try {
+            if (end - start == ISO_DATE_LENGTH && input.charAt(start + 4) == '-'
+                    && input.charAt(start + 7) == '-' && isAsciiDigits(input, start, start + 4)
+                    && isAsciiDigits(input, start + 5, start + 7) && isAsciiDigits(input, start + 8, start + 10)) {
+                return LocalDate.of(Integer.parseInt(input, start, start + 4, 10),
+                        Integer.parseInt(input, start + 5, start + 7, 10),
+                        Integer.parseInt(input, start + 8, start + 10, 10));
+            }
+            return checkStorable(LocalDate.parse(input.substring(start, end)));
+        } catch (DateTimeException e) {
+            ChattyExceptions.invalidDateFormat();
+        }
+        throw new AssertionError("Unreachable code reached in parseDate");
+    }
+
+    /**
+     * Returns the date if its epoch day fits in the {@code int} that task lists,
+     * their indexes and binary snapshots store it as. {@link LocalDate} accepts
+     * years up to 999999999, which do not.
+     */
+    private static LocalDate checkStorable(LocalDate date) throws ChattyExceptions {
+        long epochDay = date.toEpochDay();
+        if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+            ChattyExceptions.dateOutOfRange();
+        }
+        return date;
+    }
+
+    private static boolean isAsciiDigits(String input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -316,7 +526,7 @@ public class Parser {
      * </ul>
      *
      * <p>For commands that modify the task list (e.g., ADD, MARK, DELETE),
-     * the updated task list is written to persistent storage.
+     * the change is recorded in the storage journal.
      *
      * @param command  The {@code Chatty.Command} representing the user’s command type.
      * @param taskList The {@code TaskList} containing all current tasks.
@@ -328,42 +538,246 @@ public class Parser {
      */
     public static String executeCommand(Chatty.Command command,
                                          TaskList taskList, String input) throws ChattyExceptions, IOException {
+        StringBuilder output = new StringBuilder();
+        executeCommand(command, taskList, input, output);
+        return output.toString();
+    }
+
+    /**
+     * Handles a user command and writes the reply into the given sink.
+     *
+     * <p>Replies listing tasks ({@code list}, {@code find} and {@code due}) are
+     * written line by line, so a long reply can be streamed to its destination
+     * without being built up as a single {@code String}.</p>
+     *
+     * @param command  The {@code Chatty.Command} representing the user's command type.
+     * @param taskList The {@code TaskList} containing all current tasks.
+     * @param input    The full user input string associated with the command.
+     * @param out      The sink the reply is written into.
+     *
+     * @throws ChattyExceptions If the command is invalid or if parsing fails.
+     * @throws IOException If an error occurs while writing to storage or to the sink.
+     */
+    public static void executeCommand(Chatty.Command command, TaskList taskList, String input, Appendable out)
+            throws ChattyExceptions, IOException {
+        assert input != null : "Input should not be null";
+        executeCommand(command, taskList, tokenize(input), out);
+    }
+
+    /**
+     * Handles an already tokenized command and writes the reply into the given sink.
+     *
+     * <p>The tokens are shared by every step of parsing the command, so the input
+     * is only scanned once.</p>
+     *
+     * @param command  The {@code Chatty.Command} representing the user's command type.
+     * @param taskList The {@code TaskList} containing all current tasks.
+     * @param line     The tokens of the user's input.
+     * @param out      The sink the reply is written into.
+     *
+     * @throws ChattyExceptions If the command is invalid or if parsing fails.
+     * @throws IOException If an error occurs while writing to storage or to the sink.
+     */
+    public static void executeCommand(Chatty.Command command, TaskList taskList, CommandLine line, Appendable out)
+            throws ChattyExceptions, IOException {
+        executeCommand(command, taskList, line, new ListCursor(), out);
+    }
+
+    /**
+     * Handles an already tokenized command for one client and writes the reply
+     * into the given sink.
+     *
+     * @param command  The {@code Chatty.Command} representing the user's command type.
+     * @param taskList The {@code TaskList} containing all current tasks.
+     * @param line     The tokens of the user's input.
+     * @param cursor   The client's place in the list, for {@code list next}.
+     * @param out      The sink the reply is written into.
+     *
+     * @throws ChattyExceptions If the command is invalid or if parsing fails.
+     * @throws IOException If an error occurs while writing to storage or to the sink.
+     */
+    public static void executeCommand(Chatty.Command command, TaskList taskList, CommandLine line,
+            ListCursor cursor, Appendable out) throws ChattyExceptions, IOException {
         assert command != null : "Command should not be null";
         assert taskList != null : "TaskList should not be null";
-        assert input != null : "Input should not be null";
+        assert line != null : "Input should not be null";
         switch (command) {
         case LIST:
-            return Ui.listTaskMessage(taskList);
+            executeListCommand(taskList, line, cursor, out);
+            return;
         case DUE:
-            return executeDueCommand(taskList, input);
+            executeDueCommand(taskList, line, out);
+            return;
         case MARK:
-            return executeMarkCommand(taskList, input);
+            out.append(executeMarkCommand(taskList, line));
+            return;
         case UNMARK:
-            return executeUnmarkCommand(taskList, input);
+            out.append(executeUnmarkCommand(taskList, line));
+            return;
         case DELETE:
-            return executeDeleteCommand(taskList, input);
+            out.append(executeDeleteCommand(taskList, line));
+            return;
         case TODO, DEADLINE, EVENT:
-            return executeAddTaskCommand(taskList, input, command);
+            out.append(executeAddTaskCommand(taskList, line, command));
+            return;
         case FIND:
-            return executeFindCommand(taskList, input);
+            executeFindCommand(taskList, line, out);
+            return;
         default:
             ChattyExceptions.unknownCommand();
         }
         throw new AssertionError("Unreachable code reached in executeCommand");
     }
 
+    /**
+     * Executes the List command.
+     *
+     * <p>{@code list} shows the whole list, or its first page if the cursor has a
+     * page size. {@code list <page> [size]} shows one page, numbered from 1, and
+     * {@code list next} the page after the last one shown to the same cursor. A
+     * page is found by its position, so only the tasks on it are rendered.</p>
+     *
+     * @param taskList the list of tasks to show
+     * @param line     the tokens of the command
+     * @param cursor   the client's place in the list, which is moved past the page shown
+     * @param out      the sink the reply is written into
+     * @throws ChattyExceptions if the page or page size is not a positive integer
+     */
+    private static void executeListCommand(TaskList taskList, CommandLine line, ListCursor cursor, Appendable out)
+            throws ChattyExceptions, IOException {
+        if (listsWholeList(line, cursor)) {
+            Ui.writeListTaskMessage(taskList, out);
+            return;
+        }
+        executeListPage(taskList, line, cursor).writeTo(out);
+    }
+
+    /**
+     * Returns whether a {@code list} command shows the whole list rather than a page of it.
+     *
+     * @param line   the tokens of the command
+     * @param cursor the client's place in the list
+     * @return {@code true} for a plain {@code list} from a client without a page size
+     */
+    public static boolean listsWholeList(CommandLine line, ListCursor cursor) {
+        return line.count() == 1 && cursor.getPageSize() == 0;
+    }
+
+    /**
+     * Finds the page a {@code list} command shows and moves the cursor past it,
+     * returning the reply without writing it, so that only the tasks on the page
+     * are read while the list is locked.
+     *
+     * @param taskList the list of tasks to show
+     * @param line     the tokens of a {@code list} command that shows a page
+     * @param cursor   the client's place in the list, which is moved past the page
+     * @return the reply, which no longer reads the list
+     * @throws ChattyExceptions if the page or page size is not a positive integer
+     */
+    public static QueryReply executeListPage(TaskList taskList, CommandLine line, ListCursor cursor)
+            throws ChattyExceptions {
+        if (line.count() > 3) {
+            ChattyExceptions.invalidPage();
+        }
+
+        int start;
+        int size;
+        if (line.count() == 1) {
+            start = 0;
+            size = cursor.pageSizeOrDefault(); // the page size may have been unset since the caller checked
+        } else if (line.count() == 2 && line.matches(1, NEXT_PAGE)) {
+            start = cursor.nextPosition(taskList);
+            size = cursor.lastPageSize();
+        } else {
+            int page;
+            try {
+                page = line.parseInt(1);
+                size = line.count() == 3 ? line.parseInt(2) : cursor.pageSizeOrDefault();
+            } catch (NumberFormatException e) {
+                ChattyExceptions.invalidPage();
+                return null; // unreachable
+            }
+            if (page < 1 || size < 1) {
+                ChattyExceptions.invalidPage();
+            }
+            start = (int) Math.min((long) (page - 1) * size, taskList.size());
+        }
+
+        int total = taskList.size();
+        int end = (int) Math.min((long) start + size, total);
+        ArrayList<Task> tasksOnPage = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            tasksOnPage.add(taskList.get(i));
+        }
+        cursor.pageListed(taskList, end, size);
+        return out -> Ui.writeListPageMessage(tasksOnPage, start, total, out);
+    }
+
     /**
      * Executes the Due command and returns the corresponding {@link Ui} message.
      *
+     * <p>{@code due <date>} lists the tasks relevant to one date and
+     * {@code due <from> <to>} the tasks relevant to any date in the range.</p>
+     *
      * @param input the task description string from the file
      * @param taskList the list of tasks to search from
      * @return a {@link String} object representing the corresponding {@link Ui} message
      * @throws ChattyExceptions if the date format is invalid or the input is malformed
      */
-    public static String executeDueCommand(TaskList taskList, String input) throws ChattyExceptions {
-        LocalDate date = Parser.parseDateToFind(input);
-        TaskList tasksDue = taskList.getTasksDueOn(date);
-        return Ui.dueTasksMessage(date, tasksDue);
+    public static String executeDueCommand(TaskList taskList, String input) throws ChattyExceptions, IOException {
+        StringBuilder output = new StringBuilder();
+        executeDueCommand(taskList, tokenize(input), output);
+        return output.toString();
+    }
+
+    private static void executeDueCommand(TaskList taskList, CommandLine line, Appendable out)
+            throws ChattyExceptions, IOException {
+        executeQuery(Chatty.Command.DUE, taskList, line, () -> false).writeTo(out);
+    }
+
+    /**
+     * The reply to a {@code find} or {@code due} query or a page of {@code list},
+     * holding the tasks it shows until it is written.
+     */
+    @FunctionalInterface
+    public interface QueryReply {
+        /**
+         * Writes the reply into the given sink.
+         *
+         * @param out the sink the reply is written into
+         * @throws IOException if the sink cannot be written to
+         */
+        void writeTo(Appendable out) throws IOException;
+    }
+
+    /**
+     * Runs a {@code find} or {@code due} query and returns its reply without
+     * writing it, so that the query can run while the list is locked and the reply
+     * be written once it is released.
+     *
+     * @param command   {@code FIND} or {@code DUE}
+     * @param taskList  the list to search
+     * @param line      the tokens of the query
+     * @param cancelled returns {@code true} once the query should stop
+     * @return the reply, which no longer reads the list
+     * @throws ChattyExceptions      if the keyword or dates are missing or invalid
+     * @throws CancellationException if the query was cancelled before it finished
+     */
+    public static QueryReply executeQuery(Chatty.Command command, TaskList taskList, CommandLine line,
+            BooleanSupplier cancelled) throws ChattyExceptions {
+        assert command == Chatty.Command.FIND || command == Chatty.Command.DUE : "Not a query: " + command;
+        if (command == Chatty.Command.FIND) {
+            TaskList matches = taskList.find(parseKeywordToFind(line), cancelled);
+            return out -> Ui.writeMatchingTasksMessage(matches, out);
+        }
+        if (line.count() > 2) {
+            LocalDate[] range = parseDateRangeToFind(line);
+            TaskList tasksDue = taskList.getTasksDueBetween(range[0], range[1], cancelled);
+            return out -> Ui.writeDueTasksBetweenMessage(range[0], range[1], tasksDue, out);
+        }
+        LocalDate date = parseDateToFind(line);
+        TaskList tasksDue = taskList.getTasksDueBetween(date, date, cancelled);
+        return out -> Ui.writeDueTasksMessage(date, tasksDue, out);
     }
 
     /**
@@ -375,10 +789,17 @@ public class Parser {
      * @throws ChattyExceptions if the date format is invalid or the input is malformed
      */
     public static String executeMarkCommand(TaskList taskList, String input) throws ChattyExceptions, IOException {
-        List<Integer> taskIndexes = Parser.parseTaskIndex(input, taskList);
-        assert taskIndexes != null;
-        TaskList markedTasks = taskList.markTask(taskIndexes);
-        Storage.writeToFile(taskList);
+        return executeMarkCommand(taskList, tokenize(input));
+    }
+
+    private static String executeMarkCommand(TaskList taskList, CommandLine line)
+            throws ChattyExceptions, IOException {
+        BitSet selected = parseTaskSelection(line, taskList);
+        if (selected.isEmpty()) {
+            return Ui.noSelectedTasksMessage();
+        }
+        TaskList markedTasks = taskList.markTasks(selected);
+        Storage.recordMark(taskList, selected);
         return Ui.markTaskMessage(markedTasks);
     }
 
@@ -391,10 +812,17 @@ public class Parser {
      * @throws ChattyExceptions if the date format is invalid or the input is malformed
      */
     public static String executeUnmarkCommand(TaskList taskList, String input) throws ChattyExceptions, IOException {
-        List<Integer> taskIndexes = parseTaskIndex(input, taskList);
-        assert taskIndexes != null;
-        TaskList unmarkedTasks = taskList.unmarkTask(taskIndexes);
-        Storage.writeToFile(taskList);
+        return executeUnmarkCommand(taskList, tokenize(input));
+    }
+
+    private static String executeUnmarkCommand(TaskList taskList, CommandLine line)
+            throws ChattyExceptions, IOException {
+        BitSet selected = parseTaskSelection(line, taskList);
+        if (selected.isEmpty()) {
+            return Ui.noSelectedTasksMessage();
+        }
+        TaskList unmarkedTasks = taskList.unmarkTasks(selected);
+        Storage.recordUnmark(taskList, selected);
         return Ui.unmarkTaskMessage(unmarkedTasks);
     }
 
@@ -407,10 +835,33 @@ public class Parser {
      * @throws ChattyExceptions if the date format is invalid or the input is malformed
      */
     public static String executeDeleteCommand(TaskList taskList, String input) throws ChattyExceptions, IOException {
-        List<Integer> taskIndexes = parseTaskIndex(input, taskList);
-        assert taskIndexes != null;
-        TaskList deletedTasks = taskList.deleteTask(taskIndexes);
-        Storage.writeToFile(taskList);
+        return executeDeleteCommand(taskList, tokenize(input));
+    }
+
+    private static String executeDeleteCommand(TaskList taskList, CommandLine line)
+            throws ChattyExceptions, IOException {
+        if (line.count() == 2 && line.matches(1, DONE_SELECTOR)) {
+            return executePurgeCommand(taskList);
+        }
+        BitSet selected = parseTaskSelection(line, taskList);
+        if (selected.isEmpty()) {
+            return Ui.noSelectedTasksMessage();
+        }
+        TaskList deletedTasks = taskList.deleteTasks(selected);
+        Storage.recordDelete(taskList, selected);
+        return Ui.deleteTaskMessage(taskList, deletedTasks);
+    }
+
+    /**
+     * Deletes every completed task, for {@code delete done}, in one pass over the list.
+     */
+    private static String executePurgeCommand(TaskList taskList) throws IOException {
+        BitSet completed = taskList.positionsMatching(Task::isComplete);
+        if (completed.isEmpty()) {
+            return Ui.noCompletedTasksMessage();
+        }
+        TaskList deletedTasks = taskList.deleteTasks(completed);
+        Storage.recordDelete(taskList, completed);
         return Ui.deleteTaskMessage(taskList, deletedTasks);
     }
 
@@ -425,9 +876,14 @@ public class Parser {
      */
     public static String executeAddTaskCommand(TaskList taskList, String input, Chatty.Command command)
             throws IOException, ChattyExceptions {
-        Task toAdd = parseAddTaskCommand(command, input);
+        return executeAddTaskCommand(taskList, tokenize(input), command);
+    }
+
+    private static String executeAddTaskCommand(TaskList taskList, CommandLine line, Chatty.Command command)
+            throws IOException, ChattyExceptions {
+        Task toAdd = parseAddTaskCommand(command, line);
         taskList.add(toAdd);
-        Storage.writeToFile(taskList);
+        Storage.recordAdd(taskList, toAdd);
         return Ui.addTaskMessage(toAdd, taskList);
     }
 
@@ -439,9 +895,14 @@ public class Parser {
      * @return a {@link String} object representing the corresponding {@link Ui} message
      * @throws ChattyExceptions if the date format is invalid or the input is malformed
      */
-    public static String executeFindCommand(TaskList taskList, String input) throws ChattyExceptions {
-        String keyword = parseKeywordToFind(input);
-        TaskList tL = taskList.find(keyword);
-        return Ui.matchingTasksMessage(tL);
+    public static String executeFindCommand(TaskList taskList, String input) throws ChattyExceptions, IOException {
+        StringBuilder output = new StringBuilder();
+        executeFindCommand(taskList, tokenize(input), output);
+        return output.toString();
+    }
+
+    private static void executeFindCommand(TaskList taskList, CommandLine line, Appendable out)
+            throws ChattyExceptions, IOException {
+        executeQuery(Chatty.Command.FIND, taskList, line, () -> false).writeTo(out);
     }
 }
@@ -0,0 +1,77 @@
+package chatty.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Helpers for replacing a snapshot file so that a crash at any point leaves
+ * either the complete old file or the complete new one.
+ *
+ * <p>A new snapshot is written to a sibling temporary file, forced to disk and
+ * then atomically moved over the original. The directory is forced as well
+ * where the platform allows it, so the rename itself survives a crash.</p>
+ */
+final class AtomicFiles {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Returns the temporary file the new contents of the given file are written to.
+     *
+     * @param file the file that will be replaced
+     * @return the temporary file
+     */
+    static Path tempFile(Path file) {
+        return file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+    }
+
+    /**
+     * Opens a channel that writes a temporary file from scratch.
+     *
+     * @param temp the temporary file
+     * @return the channel
+     * @throws IOException if the file cannot be opened
+     */
+    static FileChannel openTemp(Path temp) throws IOException {
+        return FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Moves a completely written and forced temporary file over the file it replaces.
+     *
+     * @param temp the temporary file, already forced to disk and closed
+     * @param file the file to replace
+     * @throws IOException if the file cannot be moved
+     */
+    static void replace(Path temp, Path file) throws IOException {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not every platform can open or force a directory
+        }
+    }
+
+    /**
+     * Updates a checksum with the bytes a buffer is about to write, without
+     * moving the buffer's position.
+     */
+    static void update(CRC32C checksum, ByteBuffer toWrite) {
+        int position = toWrite.position();
+        checksum.update(toWrite);
+        toWrite.position(position);
+    }
+}
@@ -0,0 +1,315 @@
+package chatty.storage;
+
+import chatty.task.Deadline;
+import chatty.task.Event;
+import chatty.task.Task;
+import chatty.task.TaskList;
+import chatty.task.Todo;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and writes task snapshots in Chatty's compact binary format.
+ *
+ * <p>The file starts with a header of the magic number {@code "CHTY"}, a format
+ * version, the last journal segment contained in the snapshot, the task count,
+ * the position of the offset table and the next task ID to give out. Each task
+ * is then stored as:</p>
+ * <ul>
+ *     <li>one tag byte: the task type in the low bits and {@link #COMPLETE_BIT}
+ *     if the task is done</li>
+ *     <li>the task ID as an int</li>
+ *     <li>the task dates as epoch-day ints (one for a deadline, two for an event)</li>
+ *     <li>the task name as an int byte length followed by UTF-8 bytes</li>
+ * </ul>
+ *
+ * <p>The records are followed by a table holding the int file offset of every
+ * record, so a mapped snapshot can decode any task without reading the ones
+ * before it. The file ends with a CRC-32C checksum of everything after the
+ * header followed by the header itself, which is verified when the snapshot is
+ * read. Version 3 snapshots have no task IDs, so their tasks are numbered by
+ * position when read. Version 2 snapshots have no checksum either, and version 1
+ * snapshots have no offset table and are read eagerly.</p>
+ */
+final class BinarySnapshot {
+    static final int MAGIC = 0x43485459; // "CHTY"
+    static final short VERSION = 4;
+    static final short VERSION_WITHOUT_IDS = 3;
+    static final short VERSION_WITHOUT_CHECKSUM = 2;
+    static final short VERSION_WITHOUT_OFFSETS = 1;
+
+    // the type tag doubles as the number of dates stored in the record
+    static final byte TYPE_TODO = 0;
+    static final byte TYPE_DEADLINE = 1;
+    static final byte TYPE_EVENT = 2;
+    static final byte COMPLETE_BIT = (byte) 0x80;
+    static final byte TYPE_MASK = 0x0f;
+
+    private static final int V1_HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int V3_HEADER_BYTES = V1_HEADER_BYTES + Integer.BYTES;
+    private static final int HEADER_BYTES = V3_HEADER_BYTES + Integer.BYTES;
+    private static final int TABLE_OFFSET_POSITION = V1_HEADER_BYTES;
+    private static final int NEXT_ID_POSITION = V3_HEADER_BYTES;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int MAX_UTF8_BYTES_PER_CHAR = 3;
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Writes the task list to the given file, replacing its contents.
+     *
+     * <p>The snapshot is written to a sibling file, forced to disk and then moved
+     * to the given file, so a crash never leaves a partly written snapshot.
+     * {@link Storage} gives each snapshot a new file, because a list may still map
+     * the old one, which Windows does not let be replaced.</p>
+     *
+     * @param tasks          the tasks to save
+     * @param journalSegment the last journal segment contained in {@code tasks}
+     * @param file           the snapshot file
+     * @throws IOException if the file cannot be written or is too large to map
+     */
+    static void write(TaskList tasks, long journalSegment, Path file) throws IOException {
+        Path temp = AtomicFiles.tempFile(file);
+        try (FileChannel channel = AtomicFiles.openTemp(temp)) {
+            // the header is written last, once the table offset is known
+            channel.position(HEADER_BYTES);
+            CRC32C checksum = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+            int[] offsets = new int[tasks.size()];
+            long position = HEADER_BYTES;
+            int i = 0;
+            for (Task task : tasks) {
+                String name = task.getName();
+                int recordBytes = 1 + 4 * Integer.BYTES + MAX_UTF8_BYTES_PER_CHAR * name.length();
+                if (buffer.remaining() < recordBytes) {
+                    drain(channel, buffer, checksum);
+                    if (buffer.capacity() < recordBytes) {
+                        buffer = ByteBuffer.allocate(recordBytes);
+                    }
+                }
+                offsets[i++] = checkedOffset(position);
+                int start = buffer.position();
+                putTask(buffer, task, name);
+                position += buffer.position() - start;
+            }
+
+            int tableOffset = checkedOffset(position);
+            checkedOffset(position + (long) offsets.length * Integer.BYTES);
+            for (int offset : offsets) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    drain(channel, buffer, checksum);
+                }
+                buffer.putInt(offset);
+            }
+            drain(channel, buffer, checksum);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION).putLong(journalSegment).putInt(tasks.size()).putInt(tableOffset)
+                    .putInt(tasks.getNextId());
+            header.flip();
+            AtomicFiles.update(checksum, header);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            buffer.putInt((int) checksum.getValue());
+            drain(channel, buffer, null);
+            channel.force(true);
+        }
+        AtomicFiles.replace(temp, file);
+    }
+
+    private static int checkedOffset(long position) throws IOException {
+        if (position > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot larger than " + Integer.MAX_VALUE + " bytes");
+        }
+        return (int) position;
+    }
+
+    private static void putTask(ByteBuffer buffer, Task task, String name) {
+        byte status = task.isComplete() ? COMPLETE_BIT : 0;
+        if (task instanceof Deadline deadline) {
+            buffer.put((byte) (TYPE_DEADLINE | status)).putInt(task.getId());
+            buffer.putInt(Math.toIntExact(deadline.getDeadline().toEpochDay()));
+        } else if (task instanceof Event event) {
+            buffer.put((byte) (TYPE_EVENT | status)).putInt(task.getId());
+            buffer.putInt(Math.toIntExact(event.getStartDate().toEpochDay()));
+            buffer.putInt(Math.toIntExact(event.getEndDate().toEpochDay()));
+        } else {
+            assert task instanceof Todo : "Unknown task type " + task.getClass();
+            buffer.put((byte) (TYPE_TODO | status)).putInt(task.getId());
+        }
+        putName(buffer, name);
+    }
+
+    /**
+     * Puts the length-prefixed UTF-8 encoding of the name without allocating
+     * an intermediate byte array.
+     */
+    private static void putName(ByteBuffer buffer, String name) {
+        int lengthPosition = buffer.position();
+        buffer.position(lengthPosition + Integer.BYTES);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xc0 | c >> 6)).put((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < name.length()
+                    && Character.isLowSurrogate(name.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, name.charAt(++i));
+                buffer.put((byte) (0xf0 | codePoint >> 18)).put((byte) (0x80 | codePoint >> 12 & 0x3f))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3f)).put((byte) (0x80 | codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?'); // unpaired surrogate, as String#getBytes would encode it
+            } else {
+                buffer.put((byte) (0xe0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3f)).put((byte) (0x80 | c & 0x3f));
+            }
+        }
+        buffer.putInt(lengthPosition, buffer.position() - lengthPosition - Integer.BYTES);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32C checksum) throws IOException {
+        buffer.flip();
+        if (checksum != null) {
+            AtomicFiles.update(checksum, buffer);
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write}.
+     *
+     * <p>Current snapshots are memory-mapped and their tasks are decoded on
+     * demand by a {@link MappedTasks} list; older snapshots are decoded eagerly.</p>
+     *
+     * @param file the snapshot file
+     * @return the saved tasks and the journal segment they contain
+     * @throws IOException if the file cannot be read or is not a supported snapshot
+     */
+    static Snapshot read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, checkedOffset(channel.size()));
+        }
+
+        try {
+            if (buffer.limit() < V1_HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a Chatty snapshot: " + file);
+            }
+            short version = buffer.getShort(Integer.BYTES);
+            long journalSegment = buffer.getLong(Integer.BYTES + Short.BYTES);
+            int count = buffer.getInt(Integer.BYTES + Short.BYTES + Long.BYTES);
+
+            if (version == VERSION_WITHOUT_OFFSETS) {
+                TaskList tasks = new TaskList();
+                int offset = V1_HEADER_BYTES;
+                for (int i = 0; i < count; i++) {
+                    tasks.add(decode(buffer, offset, false, i + 1));
+                    offset += recordBytes(buffer, offset);
+                }
+                return new Snapshot(tasks, journalSegment);
+            }
+            if (version != VERSION && version != VERSION_WITHOUT_IDS && version != VERSION_WITHOUT_CHECKSUM) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            boolean hasIds = version == VERSION;
+            int headerBytes = hasIds ? HEADER_BYTES : V3_HEADER_BYTES;
+            if (version != VERSION_WITHOUT_CHECKSUM && !hasValidChecksum(buffer, headerBytes)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            int tableOffset = buffer.getInt(TABLE_OFFSET_POSITION);
+            if (count < 0 || tableOffset < headerBytes
+                    || (long) tableOffset + (long) count * Integer.BYTES > buffer.limit()) {
+                throw new IOException("Corrupt snapshot: " + file);
+            }
+            TaskList tasks = new TaskList(new MappedTasks(buffer, count, tableOffset, hasIds));
+            tasks.setNextId(hasIds ? buffer.getInt(NEXT_ID_POSITION) : count + 1);
+            return new Snapshot(tasks, journalSegment);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+                | IllegalStateException e) {
+            throw new IOException("Corrupt snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Checks the trailing checksum of a snapshot against its contents.
+     */
+    private static boolean hasValidChecksum(ByteBuffer buffer, int headerBytes) {
+        int end = buffer.limit() - Integer.BYTES;
+        if (end < headerBytes) {
+            return false;
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(headerBytes, end - headerBytes));
+        checksum.update(buffer.slice(0, headerBytes));
+        return (int) checksum.getValue() == buffer.getInt(end);
+    }
+
+    /**
+     * Decodes the task record starting at the given offset.
+     *
+     * @param buffer    the snapshot contents
+     * @param offset    the position of the record's tag byte
+     * @param hasId     whether the record stores the task ID
+     * @param defaultId the ID to give the task if the record has none
+     * @return the decoded task
+     */
+    static Task decode(ByteBuffer buffer, int offset, boolean hasId, int defaultId) {
+        byte tag = buffer.get(offset);
+        int position = offset + 1;
+        int id = defaultId;
+        if (hasId) {
+            id = buffer.getInt(position);
+            position += Integer.BYTES;
+        }
+        Task task;
+        switch (tag & TYPE_MASK) {
+        case TYPE_TODO:
+            task = new Todo(decodeName(buffer, position));
+            break;
+        case TYPE_DEADLINE:
+            LocalDate by = LocalDate.ofEpochDay(buffer.getInt(position));
+            task = new Deadline(decodeName(buffer, position + Integer.BYTES), by);
+            break;
+        case TYPE_EVENT:
+            LocalDate from = LocalDate.ofEpochDay(buffer.getInt(position));
+            LocalDate to = LocalDate.ofEpochDay(buffer.getInt(position + Integer.BYTES));
+            task = new Event(decodeName(buffer, position + 2 * Integer.BYTES), from, to);
+            break;
+        default:
+            throw new IllegalStateException("Unknown task type " + (tag & TYPE_MASK));
+        }
+        if ((tag & COMPLETE_BIT) != 0) {
+            task.setComplete();
+        }
+        task.setId(id);
+        return task;
+    }
+
+    private static int recordBytes(ByteBuffer buffer, int offset) {
+        int dates = buffer.get(offset) & TYPE_MASK;
+        int nameOffset = offset + 1 + dates * Integer.BYTES;
+        return nameOffset + Integer.BYTES + buffer.getInt(nameOffset) - offset;
+    }
+
+    private static String decodeName(ByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        byte[] name = new byte[length];
+        buffer.get(position + Integer.BYTES, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,222 @@
+package chatty.storage;
+
+import chatty.task.BulkRemovable;
+import chatty.task.CopyableTasks;
+import chatty.task.Task;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A task list backed by a memory-mapped binary snapshot.
+ *
+ * <p>Tasks are only decoded from the mapped file when {@link #get(int)} or an
+ * iterator reaches them, and decoded tasks are not kept, so reading a huge
+ * snapshot does not require the whole file on the heap. Tasks replaced through
+ * {@link #set(int, Task)}, for example after being marked, are kept as
+ * overrides by record number and appended tasks are kept in a small tail list.</p>
+ *
+ * <p>Removing tasks keeps them mapped: the first removal creates a table of the
+ * records still in the list, an int per task, which each later removal compacts.
+ * Inserting a task anywhere but the end copies every task onto the heap, and the
+ * list behaves like an {@link ArrayList} from then on.</p>
+ *
+ * <p>A copy shares the mapping and copies only the record table, the overrides
+ * and the appended tasks, so a snapshot of a huge list decodes nothing.</p>
+ *
+ * <p>The mapping lasts until the list is garbage collected, so the file it maps
+ * is never written again; {@link Storage} saves the next snapshot to a new file.</p>
+ */
+final class MappedTasks extends AbstractList<Task> implements BulkRemovable, CopyableTasks {
+    private final ByteBuffer mapped;
+    private final int tableOffset;
+    private final boolean hasIds;
+    /**
+     * The record numbers of the mapped tasks still in the list, in list order,
+     * or {@code null} while none has been removed and the position is the record number.
+     */
+    private int[] records;
+    /** The number of mapped tasks still in the list, which come before the appended ones. */
+    private int mappedCount;
+    private final HashMap<Integer, Task> overrides = new HashMap<>();
+    private final ArrayList<Task> appended = new ArrayList<>();
+    private ArrayList<Task> detached;
+
+    /**
+     * Creates a view of the tasks in a mapped snapshot.
+     *
+     * @param mapped      the mapped snapshot file
+     * @param mappedCount the number of tasks in the snapshot
+     * @param tableOffset the position of the table of record offsets
+     * @param hasIds      whether the records store task IDs; if not, tasks are
+     *                    numbered by their position in the snapshot
+     */
+    MappedTasks(ByteBuffer mapped, int mappedCount, int tableOffset, boolean hasIds) {
+        this.mapped = mapped;
+        this.mappedCount = mappedCount;
+        this.tableOffset = tableOffset;
+        this.hasIds = hasIds;
+    }
+
+    @Override
+    public Task get(int index) {
+        if (detached != null) {
+            return detached.get(index);
+        }
+        if (index >= mappedCount) {
+            return appended.get(index - mappedCount);
+        }
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        int record = record(index);
+        Task override = overrides.get(record);
+        return override != null
+                ? override
+                : BinarySnapshot.decode(mapped, mapped.getInt(tableOffset + record * Integer.BYTES), hasIds, record + 1);
+    }
+
+    private int record(int index) {
+        return records == null ? index : records[index];
+    }
+
+    @Override
+    public int size() {
+        return detached != null ? detached.size() : mappedCount + appended.size();
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        if (detached != null) {
+            return detached.set(index, task);
+        }
+        Task previous = get(index);
+        if (index >= mappedCount) {
+            appended.set(index - mappedCount, task);
+        } else {
+            overrides.put(record(index), task);
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        if (detached == null && index == size()) {
+            appended.add(task);
+        } else {
+            detach().add(index, task);
+        }
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        BitSet position = new BitSet();
+        position.set(index);
+        removePositions(position);
+        return removed;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        BitSet positions = new BitSet();
+        positions.set(fromIndex, toIndex);
+        removePositions(positions);
+    }
+
+    /**
+     * Removes the tasks at the set positions without decoding any task: removed
+     * records are dropped from the record table and their overrides forgotten.
+     */
+    @Override
+    public void removePositions(BitSet positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        Objects.checkIndex(positions.length() - 1, size());
+        modCount++;
+        if (detached != null) {
+            compact(detached, positions, 0);
+            return;
+        }
+        compact(appended, positions, mappedCount);
+        int first = positions.nextSetBit(0);
+        if (first >= mappedCount) {
+            return;
+        }
+        if (records == null) {
+            records = new int[mappedCount];
+            for (int i = 0; i < mappedCount; i++) {
+                records[i] = i;
+            }
+        }
+        int kept = first;
+        for (int i = first; i < mappedCount; i++) {
+            if (positions.get(i)) {
+                overrides.remove(records[i]);
+            } else {
+                records[kept++] = records[i];
+            }
+        }
+        mappedCount = kept;
+    }
+
+    /**
+     * Removes the elements of a list whose position plus {@code offset} is set.
+     */
+    private static void compact(List<Task> tasks, BitSet positions, int offset) {
+        int size = tasks.size();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!positions.get(offset + i)) {
+                if (kept != i) {
+                    tasks.set(kept, tasks.get(i));
+                }
+                kept++;
+            }
+        }
+        tasks.subList(kept, size).clear();
+    }
+
+    @Override
+    public List<Task> copy() {
+        if (detached != null) {
+            return new ArrayList<>(detached);
+        }
+        MappedTasks copy = new MappedTasks(mapped, mappedCount, tableOffset, hasIds);
+        copy.records = records == null ? null : Arrays.copyOf(records, mappedCount);
+        copy.overrides.putAll(overrides);
+        copy.appended.addAll(appended);
+        return copy;
+    }
+
+    @Override
+    public void clear() {
+        detached = new ArrayList<>();
+        modCount++;
+    }
+
+    /**
+     * Copies every task onto the heap so that tasks can be inserted.
+     */
+    private List<Task> detach() {
+        if (detached == null) {
+            ArrayList<Task> tasks = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                tasks.add(get(i));
+            }
+            detached = tasks;
+            records = null;
+            overrides.clear();
+            appended.clear();
+        }
+        return detached;
+    }
+}
@@ -0,0 +1,238 @@
+package chatty.storage;
+
+import chatty.ChattyExceptions;
+import chatty.task.Task;
+import chatty.task.TaskList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads a text snapshot by parsing newline-aligned chunks of the file in
+ * parallel on a {@link ForkJoinPool}.
+ *
+ * <p>The file is cut into several chunks per worker, each ending just after a
+ * newline, so that no line is split and faster workers can take more chunks.
+ * Every chunk is read with a positional read, decoded as UTF-8 and parsed into
+ * its own list of tasks. The lists are then joined in file order, so the result
+ * is the same {@link TaskList} the sequential reader in {@link Storage} builds,
+ * and a malformed line fails the load with the same exception it would there:
+ * that of the first malformed line in the file.</p>
+ */
+final class ParallelTextReader {
+    /** Chunks per worker, so uneven chunks still keep every worker busy. */
+    private static final int CHUNKS_PER_WORKER = 4;
+    /** Largest chunk read at once, which bounds the memory each worker holds. */
+    private static final int MAX_CHUNK_BYTES = 16 << 20;
+    private static final int BOUNDARY_SCAN_BYTES = 8192;
+
+    private ParallelTextReader() {
+    }
+
+    /**
+     * The tasks parsed from one chunk, the last journal segment and next ID lines
+     * it contains and the failure that ended it early, if any.
+     */
+    private static final class ParsedChunk {
+        final List<Task> tasks = new ArrayList<>();
+        long journalSegment = -1;
+        int nextId = -1;
+        ChattyExceptions failure;
+    }
+
+    @SuppressWarnings("serial") // never serialized; it holds an open channel
+    private static final class ChunkParser extends RecursiveTask<ParsedChunk> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+
+        ChunkParser(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ParsedChunk compute() {
+            try {
+                return parse(decode(channel, start, end));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads the tasks of a text snapshot using the given number of worker threads.
+     *
+     * @param file        the snapshot file, whose checksum has already been verified
+     * @param parallelism the number of threads parsing chunks
+     * @return the saved tasks and the journal segment they contain
+     * @throws ChattyExceptions if a task cannot be parsed
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     */
+    static Snapshot read(Path file, int parallelism) throws ChattyExceptions, IOException {
+        assert parallelism > 0 : "Parallelism should be positive";
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] boundaries = chunkBoundaries(channel, parallelism);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<ForkJoinTask<ParsedChunk>> chunks = new ArrayList<>();
+                for (int i = 0; i + 1 < boundaries.length; i++) {
+                    chunks.add(pool.submit(new ChunkParser(channel, boundaries[i], boundaries[i + 1])));
+                }
+                return join(chunks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Joins the parsed chunks in file order into one snapshot.
+     */
+    private static Snapshot join(List<ForkJoinTask<ParsedChunk>> chunks) throws ChattyExceptions {
+        List<ParsedChunk> parsed = new ArrayList<>(chunks.size());
+        int taskCount = 0;
+        long journalSegment = 0;
+        int nextId = 1;
+        for (ForkJoinTask<ParsedChunk> chunk : chunks) {
+            ParsedChunk result = chunk.join();
+            if (result.failure != null) {
+                throw result.failure;
+            }
+            if (result.journalSegment >= 0) {
+                journalSegment = result.journalSegment;
+            }
+            if (result.nextId >= 0) {
+                nextId = result.nextId;
+            }
+            taskCount += result.tasks.size();
+            parsed.add(result);
+        }
+
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (ParsedChunk result : parsed) {
+            tasks.addAll(result.tasks);
+        }
+        TaskList taskList = new TaskList(tasks);
+        taskList.setNextId(nextId);
+        return new Snapshot(taskList, journalSegment);
+    }
+
+    /**
+     * Returns the start of every chunk followed by the end of the file. Each
+     * chunk after the first starts just after a newline.
+     */
+    private static long[] chunkBoundaries(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunkCount = Math.max((long) parallelism * CHUNKS_PER_WORKER, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        chunkCount = Math.max(1, Math.min(chunkCount, size));
+
+        long[] boundaries = new long[(int) chunkCount + 1];
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        for (int i = 1; i < chunkCount; i++) {
+            long nominal = Math.max(size / chunkCount * i, boundaries[i - 1]);
+            boundaries[i] = nextLineStart(channel, nominal, size, scan);
+        }
+        boundaries[(int) chunkCount] = size;
+        return boundaries;
+    }
+
+    /**
+     * Returns the position just after the first newline at or after {@code from},
+     * or the end of the file if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer scan) throws IOException {
+        long position = from;
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the bytes of a chunk and decodes them as UTF-8. A chunk boundary
+     * always follows a newline byte, so it never splits a character.
+     *
+     * @throws IOException if the chunk cannot be read or is not valid UTF-8
+     */
+    private static CharBuffer decode(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while (bytes.hasRemaining() && channel.read(bytes, start + bytes.position()) >= 0) {
+            // keep reading until the chunk is full
+        }
+        bytes.flip();
+        return StandardCharsets.UTF_8.newDecoder().decode(bytes);
+    }
+
+    /**
+     * Parses the lines of a chunk the way {@link Storage} parses a whole file.
+     *
+     * <p>Both {@code '\n'} and {@code '\r'} end a line. This splits a
+     * {@code "\r\n"} pair into a line and an empty line, which is skipped like
+     * every blank line, so the lines parsed are those {@code readLine} returns.</p>
+     */
+    private static ParsedChunk parse(CharBuffer text) {
+        ParsedChunk chunk = new ParsedChunk();
+        char[] chars = text.array();
+        int end = text.arrayOffset() + text.limit();
+        int lineStart = text.arrayOffset();
+        for (int i = lineStart; i <= end; i++) {
+            if (i < end && chars[i] != '\n' && chars[i] != '\r') {
+                continue;
+            }
+            if (i > lineStart) {
+                String line = new String(chars, lineStart, i - lineStart);
+                try {
+                    parseLine(line, chunk);
+                } catch (ChattyExceptions e) {
+                    chunk.failure = e;
+                    return chunk;
+                }
+            }
+            lineStart = i + 1;
+        }
+        return chunk;
+    }
+
+    private static void parseLine(String taskDescription, ParsedChunk chunk) throws ChattyExceptions {
+        if (taskDescription.startsWith(Storage.JOURNAL_METADATA)) {
+            chunk.journalSegment = Long.parseLong(
+                    taskDescription.substring(Storage.JOURNAL_METADATA.length()).trim());
+            return;
+        }
+        if (taskDescription.startsWith(Storage.NEXT_ID_METADATA)) {
+            chunk.nextId = Integer.parseInt(taskDescription.substring(Storage.NEXT_ID_METADATA.length()).trim());
+            return;
+        }
+        if (taskDescription.isBlank() || taskDescription.startsWith(Storage.METADATA_PREFIX)) {
+            return;
+        }
+        assert taskDescription.contains("[") : "Saved task format should contain type indicator";
+        chunk.tasks.add(Storage.parseTaskLine(taskDescription));
+    }
+}
@@ -0,0 +1,17 @@
+package chatty.storage;
+
+import chatty.task.TaskList;
+
+/**
+ * The contents of a snapshot file: the saved tasks and the last journal
+ * segment already folded into them.
+ */
+final class Snapshot {
+    final TaskList tasks;
+    final long journalSegment;
+
+    Snapshot(TaskList tasks, long journalSegment) {
+        this.tasks = tasks;
+        this.journalSegment = journalSegment;
+    }
+}
@@ -6,100 +6,1222 @@ import chatty.task.Task;
 import chatty.task.TaskList;
 import chatty.ui.Ui;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * The {@code Storage} class handles saving tasks to disk and loading them back
  * into memory for the Chatty application.
  *
- * <p>Tasks are stored as plain text in a file, with each line representing
- * one task. When loading, task strings are parsed to reconstruct the
- * appropriate {@link Task} objects.</p>
+ * <p>Tasks are stored as a snapshot file plus a write-ahead journal. Mutating
+ * commands only append a small record to the journal; once the journal grows past
+ * {@link #COMPACTION_THRESHOLD} records it is folded into a fresh snapshot. When loading, the snapshot is parsed and the
+ * journal is replayed on top of it.</p>
+ *
+ * <p>The snapshot is written in the selected {@link Format}. If only a snapshot
+ * in the other format exists, for example the legacy {@code chatty.txt}, it is
+ * loaded and migrated to the selected format.</p>
+ *
+ * <p>A loaded binary snapshot stays memory-mapped by its task list, and Windows
+ * refuses to replace or delete a mapped file. Binary snapshots are therefore
+ * saved as numbered generations ({@code chatty.bin.<n>}): each save writes the
+ * next generation, which nothing maps yet, and then deletes the older ones that
+ * can be deleted. A generation still mapped is left for a later save or load to
+ * delete. Loading reads the newest generation.</p>
+ *
+ * <p>The journal is split into numbered segments ({@code chatty.journal.<n>}).
+ * A snapshot records the last segment it already contains, so a crash between
+ * writing the snapshot and deleting the old segment never replays a record twice.</p>
+ *
+ * <p>Each journal record is a line framed by the UTF-8 byte length and CRC-32C
+ * checksum of the record, such as {@code 7 1a2b3c4d M 2-7 9}, so a record torn by
+ * a crash is detected even when what was written of it still parses. Replay stops
+ * at the first record that is torn, corrupt or cannot be applied; the rest of the
+ * journal is moved aside to a {@code .corrupt} file and the segment is truncated
+ * there, so new records never run on from a torn one. Unframed lines written
+ * before records were framed are still replayed.</p>
+ *
+ * <p>Both formats keep the stable ID of every task and the next ID to give out,
+ * and journaled adds record the ID of the new task, so IDs survive a restart.</p>
+ *
+ * <p>Journal records are written by a background persistence thread according to
+ * the selected {@link Durability}. Records recorded while the thread is busy are
+ * coalesced into its next write, and compaction also runs on that thread, so the
+ * caller does not wait for the disk in {@link Durability#ASYNC} mode. Code that
+ * mutates a task list passed to this class must hold the list's monitor, which the
+ * persistence thread takes while writing a snapshot of it.</p>
+ *
+ * <p>Between {@link #beginBatch()} and {@link #endBatch(TaskList)} journal records
+ * are buffered in memory and only written by {@link #flushBatch(TaskList)}, so a
+ * bulk import touches the disk once per flush rather than once per command.</p>
  */
 public class Storage {
+    /**
+     * The file formats a snapshot can be saved in.
+     */
+    public enum Format {
+        /** One human-readable line per task, numbered by task ID. */
+        TEXT("chatty.txt"),
+        /** The compact binary format of {@link BinarySnapshot}. */
+        BINARY("chatty.bin");
+
+        private final String fileName;
+
+        Format(String fileName) {
+            this.fileName = fileName;
+        }
+
+        private Format other() {
+            return this == TEXT ? BINARY : TEXT;
+        }
+    }
+
+    /**
+     * How long a recorded change may stay in memory before it is on disk.
+     */
+    public enum Durability {
+        /**
+         * Recording a change returns at once; the persistence thread writes it soon
+         * after without forcing it to disk. A crash of the machine, or of the JVM
+         * before {@link #flush()}, can lose the latest changes.
+         */
+        ASYNC,
+        /**
+         * Recording a change waits until it has been written and forced to disk.
+         * Changes recorded while another caller's write is in progress are written
+         * together by the next caller, so concurrent callers share one force.
+         * Compaction runs on the persistence thread.
+         */
+        GROUP_COMMIT,
+        /**
+         * Recording a change writes and forces it to disk on the caller's thread,
+         * and compaction also runs on the caller's thread.
+         */
+        SYNC
+    }
+
+    /**
+     * Number of journal records after which the journal is folded into the snapshot.
+     */
+    static final int COMPACTION_THRESHOLD = 1000;
+
+    private static final String FORMAT_PROPERTY = "chatty.storage.format";
+    private static final String DURABILITY_PROPERTY = "chatty.storage.durability";
+    private static final String LOAD_PARALLELISM_PROPERTY = "chatty.storage.loadParallelism";
+    private static final String JOURNAL_PREFIX = "chatty.journal.";
+    private static final String BINARY_GENERATION_PREFIX = Format.BINARY.fileName + ".";
+    static final String METADATA_PREFIX = "#";
+    static final String JOURNAL_METADATA = "#journal ";
+    static final String NEXT_ID_METADATA = "#nextid ";
+    private static final String CHECKSUM_METADATA = "#crc32c ";
+    private static final int TEXT_BUFFER_CHARS = 1 << 16;
+    private static final int COPY_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Text snapshots smaller than this are read on the calling thread, where
+     * starting worker threads would cost more than it saves.
+     */
+    static final long PARALLEL_LOAD_MIN_BYTES = 1 << 20;
+
+    private static final char RECORD_ADD = 'A';
+    private static final char RECORD_MARK = 'M';
+    private static final char RECORD_UNMARK = 'U';
+    private static final char RECORD_DELETE = 'D';
+    /** Separates the first and last position of a run in a journal record. */
+    private static final char RANGE_SEPARATOR = '-';
+    /** Separates the length, checksum and record of a journal line. */
+    private static final char FRAME_SEPARATOR = ' ';
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+
+    /**
+     * The directory where Chatty task data is stored.
+     */
+    private static Path dataDirectory = Path.of("data");
+
+    /**
+     * The format snapshots are saved in, {@link Format#BINARY} unless the
+     * {@code chatty.storage.format} system property says otherwise.
+     */
+    private static Format format = Format.valueOf(System.getProperty(FORMAT_PROPERTY, "binary").toUpperCase());
+
+    /**
+     * The journal segment new records are appended to.
+     */
+    private static long journalSegment = 1;
+
+    /**
+     * Number of records in the current journal segment, including pending ones.
+     */
+    private static int journalRecords = 0;
+
+    /**
+     * How recorded changes are written, {@link Durability#ASYNC} unless the
+     * {@code chatty.storage.durability} system property says otherwise.
+     */
+    private static Durability durability =
+            Durability.valueOf(System.getProperty(DURABILITY_PROPERTY, "async").toUpperCase());
+
+    /**
+     * Number of threads that parse a large text snapshot, the number of available
+     * processors unless the {@code chatty.storage.loadParallelism} system property
+     * says otherwise.
+     */
+    private static int loadParallelism =
+            Integer.getInteger(LOAD_PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Guards the pending records and the sequence numbers below, and is held while
+     * a snapshot is written. Lock order: task list, then {@link #JOURNAL_LOCK},
+     * then this.
+     */
+    private static final Object LOCK = new Object();
+
+    /**
+     * Held while pending records are taken and appended to the journal, so that
+     * records reach the file in the order they were recorded.
+     */
+    private static final Object JOURNAL_LOCK = new Object();
+
+    /** Journal records recorded but not yet written. */
+    private static final StringBuilder pendingRecords = new StringBuilder();
+
+    /** Number of records recorded so far. */
+    private static long recordedSequence = 0;
+
+    /** Number of records written to the journal or contained in a snapshot so far. */
+    private static long writtenSequence = 0;
+
+    /** Whether a batch is in progress, so that records wait for {@link #flushBatch}. */
+    private static boolean batching = false;
+
+    /** Whether the persistence thread has been asked to write the pending records. */
+    private static boolean drainScheduled = false;
+
+    /** The task list to write a new snapshot of once the journal is written, if any. */
+    private static TaskList compactionTarget;
+
+    /** A failure of the persistence thread not yet reported to a caller. */
+    private static IOException writeFailure;
+
+    private static ExecutorService writer;
+
+    /** The task list the current text snapshot was last written from, if any. */
+    private static TaskList textSnapshotTasks;
+
+    /**
+     * The byte offset of every task line in the current text snapshot, followed
+     * by the offset just past the last one. Updated in place by each save.
+     */
+    private static long[] textLineOffsets = new long[1];
+
+    /** The number of task lines in the current text snapshot. */
+    private static int textLineCount;
+
+    /**
+     * Changes the directory used for the snapshot and journal files.
+     *
+     * <p>Changes recorded in the old directory are written first.</p>
+     *
+     * @param directory the new data directory
+     */
+    public static void setDataDirectory(Path directory) {
+        assert directory != null : "Data directory should not be null";
+        try {
+            flush();
+        } catch (IOException e) {
+            // the changes belonged to the old directory
+        }
+        synchronized (LOCK) {
+            dataDirectory = directory;
+            journalSegment = 1;
+            journalRecords = 0;
+            pendingRecords.setLength(0);
+            compactionTarget = null;
+            batching = false;
+            textSnapshotTasks = null;
+        }
+    }
+
+    /**
+     * Changes how recorded changes are written, after writing any pending ones.
+     *
+     * @param newDurability the durability mode
+     * @throws IOException if pending changes cannot be written
+     */
+    public static void setDurability(Durability newDurability) throws IOException {
+        assert newDurability != null : "Durability should not be null";
+        flush();
+        durability = newDurability;
+    }
+
+    /**
+     * Changes the format new snapshots are saved in.
+     *
+     * @param newFormat the snapshot format
+     */
+    public static void setFormat(Format newFormat) {
+        assert newFormat != null : "Format should not be null";
+        format = newFormat;
+    }
+
+    /**
+     * Changes the number of threads that parse a large text snapshot when it is
+     * loaded. With a parallelism of 1 every snapshot is read on the calling thread.
+     *
+     * @param parallelism the number of threads, at least 1
+     */
+    public static void setLoadParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Load parallelism must be at least 1: " + parallelism);
+        }
+        loadParallelism = parallelism;
+    }
+
+    /**
+     * Returns the newest snapshot in the given format, or {@code null} if there is none.
+     */
+    private static Path snapshotPath(Format snapshotFormat) throws IOException {
+        if (snapshotFormat == Format.TEXT) {
+            Path file = dataDirectory.resolve(Format.TEXT.fileName);
+            return Files.exists(file) ? file : null;
+        }
+        TreeMap<Long, Path> generations = binarySnapshots();
+        return generations.isEmpty() ? null : generations.lastEntry().getValue();
+    }
+
+    /**
+     * Returns the binary snapshots in the data directory by generation. A
+     * {@code chatty.bin} saved before snapshots had generations is generation 0.
+     */
+    private static TreeMap<Long, Path> binarySnapshots() throws IOException {
+        TreeMap<Long, Path> generations = numberedFiles(BINARY_GENERATION_PREFIX);
+        Path unnumbered = dataDirectory.resolve(Format.BINARY.fileName);
+        if (Files.exists(unnumbered)) {
+            generations.put(0L, unnumbered);
+        }
+        return generations;
+    }
 
     /**
-     * The file path where Chatty task data is stored.
+     * Deletes old snapshot files, leaving any that cannot be deleted because a
+     * task list still maps them for a later save or load to delete.
      */
-    private static final String FILE_PATH = "data" + File.separator + "chatty.txt";;
+    private static void deleteObsolete(Iterable<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // still mapped on a platform that keeps mapped files
+            }
+        }
+    }
+
+    private static Path journalPath(long segment) {
+        return dataDirectory.resolve(JOURNAL_PREFIX + segment);
+    }
 
     /**
-     * Writes the current task list to the storage file.
+     * Writes the current task list to the snapshot file.
      *
      * <p>If the parent directories do not exist, they will be created
-     * automatically. Existing file contents will be overwritten.</p>
+     * automatically. Existing file contents will be overwritten. The snapshot
+     * records that it contains every journal segment up to the current one,
+     * which is then deleted.</p>
      *
      * @param tasksToAdd the {@link TaskList} containing tasks to be saved
      * @throws IOException if an I/O error occurs while writing to the file
      */
     public static void writeToFile(TaskList tasksToAdd) throws IOException {
         assert tasksToAdd != null : "TaskList passed to writeToFile should not be null";
-        assert FILE_PATH != null && !FILE_PATH.isBlank() : "FILE_PATH should not be null or blank";
 
-        File file = new File(FILE_PATH);
-        File parent = file.getParentFile();
+        synchronized (LOCK) {
+            Files.createDirectories(dataDirectory);
+            if (format == Format.BINARY) {
+                TreeMap<Long, Path> older = binarySnapshots();
+                long generation = older.isEmpty() ? 1 : older.lastKey() + 1;
+                BinarySnapshot.write(tasksToAdd, journalSegment,
+                        dataDirectory.resolve(BINARY_GENERATION_PREFIX + generation));
+                deleteObsolete(older.values());
+                textSnapshotTasks = null;
+            } else {
+                writeText(tasksToAdd, dataDirectory.resolve(Format.TEXT.fileName));
+            }
+            tasksToAdd.markSaved();
 
-        assert parent != null : "Parent directory should not be null";
+            Files.deleteIfExists(journalPath(journalSegment));
+            journalSegment++;
+            journalRecords = 0;
+            // pending records are already contained in the snapshot
+            pendingRecords.setLength(0);
+            writtenSequence = recordedSequence;
+            if (compactionTarget == tasksToAdd) {
+                compactionTarget = null;
+            }
+            LOCK.notifyAll();
+        }
+    }
 
-        parent.mkdirs();
-        assert parent.exists() : "Parent directory should exist after mkdirs()";
+    /**
+     * Writes a text snapshot to a temporary file, ends it with a checksum line,
+     * forces it to disk and moves it over the old snapshot.
+     *
+     * <p>If the old snapshot was written from the same task list, the lines of
+     * tasks that have neither moved nor changed since are copied from it with
+     * {@link FileChannel#transferTo}, using the line offsets kept from the last
+     * save, and only the other lines are formatted again. Marking a task rewrites
+     * one line, adding tasks appends lines and deleting a task rewrites the lines
+     * after it, which have moved.</p>
+     *
+     * <p>Each line starts with the stable ID of its task rather than its position,
+     * and the next ID to give out is saved in a {@code #nextid} line.</p>
+     */
+    private static void writeText(TaskList tasksToAdd, Path file) throws IOException {
+        Path temp = AtomicFiles.tempFile(file);
+        boolean incremental = textSnapshotTasks == tasksToAdd && Files.exists(file);
+        textSnapshotTasks = null;
+        if (textLineOffsets.length <= tasksToAdd.size()) {
+            textLineOffsets = Arrays.copyOf(textLineOffsets, tasksToAdd.size() + tasksToAdd.size() / 2 + 1);
+        }
+        // each offset is read before it is overwritten, so the table is updated in place
+        long[] offsets = textLineOffsets;
+        try (FileChannel channel = AtomicFiles.openTemp(temp);
+             FileChannel previous = incremental ? FileChannel.open(file, StandardOpenOption.READ) : null) {
+            CRC32C checksum = new CRC32C();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum), StandardCharsets.UTF_8),
+                    TEXT_BUFFER_CHARS);
+
+            int reusable = incremental ? Math.min(tasksToAdd.getSavedPrefixLength(), textLineCount) : 0;
+            ByteBuffer copyBuffer = reusable == 0 ? null : ByteBuffer.allocate(COPY_BUFFER_BYTES);
+            long position = 0;
+            int i = 0;
+            while (i < tasksToAdd.size()) {
+                int changed = i < reusable ? tasksToAdd.nextChangedSinceSave(i) : i;
+                if (changed == i) {
+                    offsets[i] = position;
+                    Task task = tasksToAdd.get(i);
+                    Ui.writeTaskLine(task.getId(), task, writer);
+                    position += lineBytes(task.getId(), task);
+                    i++;
+                    continue;
+                }
 
-        try (FileWriter fw = new FileWriter(FILE_PATH)) {
-            int i = 1;
-            for (Task task : tasksToAdd) {
-                fw.write(String.format("%d. %s%n", i, task.toString()));
+                // copy the unchanged lines up to the next changed one
+                int end = changed < 0 ? reusable : Math.min(changed, reusable);
+                long start = offsets[i];
+                long length = offsets[end] - start;
+                writer.flush();
+                updateChecksum(checksum, previous, start, length, copyBuffer);
+                for (long copied = 0; copied < length; ) {
+                    copied += previous.transferTo(start + copied, length - copied, channel);
+                }
+                for (int j = i; j < end; j++) {
+                    offsets[j] += position - start;
+                }
+                position += length;
+                i = end;
+            }
+            offsets[tasksToAdd.size()] = position;
+            writer.write(String.format("%s%d%n", NEXT_ID_METADATA, tasksToAdd.getNextId()));
+            writer.write(String.format("%s%d%n", JOURNAL_METADATA, journalSegment));
+            writer.flush();
+
+            ByteBuffer trailer = ByteBuffer.wrap(String.format("%s%08x%n", CHECKSUM_METADATA, checksum.getValue())
+                    .getBytes(StandardCharsets.US_ASCII));
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        }
+        AtomicFiles.replace(temp, file);
+        textLineCount = tasksToAdd.size();
+        textSnapshotTasks = tasksToAdd;
+    }
+
+    /**
+     * Updates a checksum with a range of a file, read through a buffer. The file
+     * is not mapped, because a mapping outlives its channel until it is garbage
+     * collected, and on Windows a mapped file cannot be replaced.
+     */
+    private static void updateChecksum(CRC32C checksum, FileChannel file, long start, long length,
+            ByteBuffer buffer) throws IOException {
+        long end = start + length;
+        for (long position = start; position < end; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = file.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Snapshot ended early: " + (end - position) + " byte(s) missing");
+            }
+            buffer.flip();
+            checksum.update(buffer);
+            position += read;
+        }
+    }
+
+    /**
+     * Returns the number of bytes {@link Ui#writeTaskLine} writes for a task in UTF-8.
+     */
+    private static long lineBytes(int number, Task task) {
+        String text = task.toString();
+        long bytes = ". ".length() + System.lineSeparator().length();
+        for (int digits = number; digits > 0; digits /= 10) {
+            bytes++;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
                 i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1; // unpaired surrogates are written as '?'
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Records that a task was added to the end of the task list.
+     *
+     * @param taskList the task list the task was added to
+     * @param task     the added task
+     * @throws IOException if the journal cannot be written
+     */
+    public static void recordAdd(TaskList taskList, Task task) throws IOException {
+        appendRecord(taskList, RECORD_ADD + " " + task.getId() + ". " + task.toString());
+    }
+
+    /**
+     * Records that tasks were marked as complete.
+     *
+     * @param taskList    the task list containing the tasks
+     * @param taskIndexes the zero-based indexes that were marked
+     * @throws IOException if the journal cannot be written
+     */
+    public static void recordMark(TaskList taskList, List<Integer> taskIndexes) throws IOException {
+        appendRecord(taskList, indexRecord(RECORD_MARK, taskIndexes));
+    }
+
+    /**
+     * Records that tasks were marked as incomplete.
+     *
+     * @param taskList    the task list containing the tasks
+     * @param taskIndexes the zero-based indexes that were unmarked
+     * @throws IOException if the journal cannot be written
+     */
+    public static void recordUnmark(TaskList taskList, List<Integer> taskIndexes) throws IOException {
+        appendRecord(taskList, indexRecord(RECORD_UNMARK, taskIndexes));
+    }
+
+    /**
+     * Records that the tasks at the set positions of a bitmap were marked as complete.
+     *
+     * @param taskList  the task list containing the tasks
+     * @param positions the zero-based positions that were marked
+     * @throws IOException if the journal cannot be written
+     */
+    public static void recordMark(TaskList taskList, BitSet positions) throws IOException {
+        appendRecord(taskList, positionRecord(RECORD_MARK, positions));
+    }
+
+    /**
+     * Records that the tasks at the set positions of a bitmap were marked as incomplete.
+     *
+     * @param taskList  the task list containing the tasks
+     * @param positions the zero-based positions that were unmarked
+     * @throws IOException if the journal cannot be written
+     */
+    public static void recordUnmark(TaskList taskList, BitSet positions) throws IOException {
+        appendRecord(taskList, positionRecord(RECORD_UNMARK, positions));
+    }
+
+    /**
+     * Records that tasks were deleted.
+     *
+     * @param taskList    the task list the tasks were deleted from
+     * @param taskIndexes the zero-based indexes that were deleted
+     * @throws IOException if the journal cannot be written
+     */
+    public static void recordDelete(TaskList taskList, List<Integer> taskIndexes) throws IOException {
+        appendRecord(taskList, indexRecord(RECORD_DELETE, taskIndexes));
+    }
+
+    /**
+     * Records that the tasks at the set positions of a bitmap were deleted.
+     *
+     * @param taskList  the task list the tasks were deleted from
+     * @param positions the zero-based positions that were deleted
+     * @throws IOException if the journal cannot be written
+     */
+    public static void recordDelete(TaskList taskList, BitSet positions) throws IOException {
+        appendRecord(taskList, positionRecord(RECORD_DELETE, positions));
+    }
+
+    /**
+     * Writes the set positions of a bitmap as a record, with each run of
+     * consecutive positions written as a range such as {@code 0-49999}, so that
+     * {@code mark all} journals one short record however long the list is.
+     */
+    private static String positionRecord(char type, BitSet positions) {
+        StringBuilder record = new StringBuilder().append(type);
+        for (int first = positions.nextSetBit(0); first >= 0; ) {
+            int end = positions.nextClearBit(first);
+            record.append(' ').append(first);
+            if (end - first > 1) {
+                record.append(RANGE_SEPARATOR).append(end - 1);
+            }
+            first = end < Integer.MAX_VALUE ? positions.nextSetBit(end) : -1;
+        }
+        return record.toString();
+    }
+
+    private static String indexRecord(char type, List<Integer> taskIndexes) {
+        StringBuilder record = new StringBuilder().append(type);
+        for (Integer taskIndex : taskIndexes) {
+            record.append(' ').append(taskIndex);
+        }
+        return record.toString();
+    }
+
+    /**
+     * Starts buffering journal records in memory instead of appending each one
+     * to the journal as it is recorded.
+     */
+    public static void beginBatch() {
+        synchronized (LOCK) {
+            assert !batching : "A batch is already in progress";
+            batching = true;
+        }
+    }
+
+    /**
+     * Writes the journal records buffered by the current batch, on the caller's
+     * thread and with the selected {@link Durability}.
+     *
+     * <p>The records are appended to the journal in a single write. If the journal
+     * has grown past {@link #COMPACTION_THRESHOLD} records, a new snapshot of the
+     * task list is written instead, which makes the buffered records unnecessary.</p>
+     *
+     * @param taskList the task list the buffered records were applied to
+     * @throws IOException if the journal or snapshot cannot be written
+     */
+    public static void flushBatch(TaskList taskList) throws IOException {
+        synchronized (LOCK) {
+            assert batching : "No batch is in progress";
+            if (journalRecords >= COMPACTION_THRESHOLD) {
+                writeToFile(taskList);
+                return;
+            }
+        }
+        writeJournal();
+    }
+
+    /**
+     * Writes the journal records buffered by the current batch and goes back to
+     * appending each record as it is recorded.
+     *
+     * @param taskList the task list the buffered records were applied to
+     * @throws IOException if the journal or snapshot cannot be written
+     */
+    public static void endBatch(TaskList taskList) throws IOException {
+        try {
+            flushBatch(taskList);
+        } finally {
+            synchronized (LOCK) {
+                batching = false;
+            }
+        }
+    }
+
+    /**
+     * Waits until every change recorded so far has been written, including any
+     * compaction the persistence thread has been asked to do.
+     *
+     * <p>Must not be called while holding the monitor of a task list passed to
+     * this class, as a pending compaction needs it.</p>
+     *
+     * @throws IOException if the persistence thread failed to write a change
+     */
+    public static void flush() throws IOException {
+        synchronized (LOCK) {
+            if (batching) {
+                return; // batched records are only written by flushBatch
+            }
+            if (pendingRecords.length() > 0 || compactionTarget != null) {
+                scheduleDrain();
+            }
+            awaitWriter(() -> !drainScheduled && writtenSequence >= recordedSequence
+                    && compactionTarget == null);
+        }
+    }
+
+    /**
+     * Appends one record to the current journal segment, compacting the journal
+     * into a new snapshot once it passes {@link #COMPACTION_THRESHOLD}.
+     *
+     * <p>In {@link Durability#ASYNC} mode the record is left for the persistence
+     * thread; otherwise the caller appends every pending record, including ones
+     * recorded by other threads. During a batch the record is only buffered until
+     * the next flush.</p>
+     */
+    private static void appendRecord(TaskList taskList, String record) throws IOException {
+        long sequence;
+        Durability mode;
+        synchronized (LOCK) {
+            throwWriteFailure();
+            appendFramed(pendingRecords, record);
+            sequence = ++recordedSequence;
+            journalRecords++;
+            if (batching) {
+                return;
+            }
+            mode = durability;
+            if (mode == Durability.ASYNC) {
+                if (journalRecords >= COMPACTION_THRESHOLD) {
+                    compactionTarget = taskList;
+                }
+                scheduleDrain();
+                return;
+            }
+        }
+
+        // another caller may already have written this record along with its own
+        writeJournal();
+        synchronized (LOCK) {
+            throwWriteFailure();
+            assert writtenSequence >= sequence : "Record should have been written";
+            if (journalRecords < COMPACTION_THRESHOLD) {
+                return;
+            }
+            if (mode == Durability.SYNC) {
+                writeToFile(taskList);
+            } else {
+                compactionTarget = taskList;
+                scheduleDrain();
             }
-        } catch (IOException e) {
-            Ui.loadErrorMessage(e.getMessage());
         }
     }
 
     /**
-     * Loads tasks from the storage file and reconstructs them into a {@link TaskList}.
+     * Appends a record to the journal text as a line framed by its UTF-8 byte
+     * length and CRC-32C checksum.
+     */
+    private static void appendFramed(StringBuilder journal, String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes);
+        String crc = Long.toHexString(checksum.getValue());
+        journal.append(bytes.length).append(FRAME_SEPARATOR);
+        for (int i = crc.length(); i < 2 * Integer.BYTES; i++) {
+            journal.append('0');
+        }
+        journal.append(crc).append(FRAME_SEPARATOR).append(record).append(System.lineSeparator());
+    }
+
+    /**
+     * Appends the pending records to the current journal segment, forcing them to
+     * disk unless the durability is {@link Durability#ASYNC}.
+     */
+    private static void writeJournal() throws IOException {
+        synchronized (JOURNAL_LOCK) {
+            String records;
+            long segment;
+            long sequence;
+            boolean force;
+            synchronized (LOCK) {
+                if (pendingRecords.length() == 0) {
+                    return;
+                }
+                records = pendingRecords.toString();
+                pendingRecords.setLength(0);
+                segment = journalSegment;
+                sequence = recordedSequence;
+                force = durability != Durability.ASYNC;
+                Files.createDirectories(dataDirectory);
+            }
+
+            // a snapshot written meanwhile contains these records and makes the segment obsolete
+            try (FileChannel journal = FileChannel.open(journalPath(segment), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer bytes = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    journal.write(bytes);
+                }
+                if (force) {
+                    journal.force(false);
+                }
+            }
+
+            synchronized (LOCK) {
+                writtenSequence = Math.max(writtenSequence, sequence);
+                LOCK.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Asks the persistence thread to write the pending records. Requests made
+     * while it is already busy are coalesced into one write. Must hold {@link #LOCK}.
+     */
+    private static void scheduleDrain() {
+        if (drainScheduled) {
+            return;
+        }
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "chatty-persistence");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    System.err.println("Could not save tasks: " + e.getMessage());
+                }
+            }));
+        }
+        drainScheduled = true;
+        writer.execute(Storage::drain);
+    }
+
+    /**
+     * Runs on the persistence thread: writes the pending records, then a snapshot
+     * if the journal has grown past {@link #COMPACTION_THRESHOLD}.
+     */
+    private static void drain() {
+        synchronized (LOCK) {
+            drainScheduled = false;
+        }
+        try {
+            writeJournal();
+            TaskList target;
+            synchronized (LOCK) {
+                target = compactionTarget;
+            }
+            if (target != null) {
+                synchronized (target) {
+                    synchronized (LOCK) {
+                        if (compactionTarget == target) {
+                            writeToFile(target);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (LOCK) {
+                writeFailure = e instanceof IOException io ? io : new IOException(e);
+                compactionTarget = null;
+                writtenSequence = recordedSequence; // release waiting callers
+                LOCK.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits on {@link #LOCK}, which must be held, until the condition holds, then
+     * reports any failure of the persistence thread.
+     */
+    private static void awaitWriter(BooleanSupplier condition) throws IOException {
+        boolean interrupted = false;
+        while (!condition.getAsBoolean()) {
+            try {
+                LOCK.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        throwWriteFailure();
+    }
+
+    private static void throwWriteFailure() throws IOException {
+        if (writeFailure != null) {
+            IOException failure = writeFailure;
+            writeFailure = null;
+            throw failure;
+        }
+    }
+
+    /**
+     * Loads tasks from the snapshot file and replays the journal on top of them.
      *
-     * <p>Each line in the file is parsed into a {@link Task} using the
-     * {@link Parser}. If a task line indicates completion, the task
-     * will be marked as completed.</p>
+     * <p>If there is no snapshot in the selected format but there is one in the
+     * other format, that snapshot is loaded instead and rewritten in the selected
+     * format.</p>
      *
      * @return a {@link TaskList} containing all loaded tasks
-     * @throws FileNotFoundException if the storage file does not exist
      * @throws ChattyExceptions if a task cannot be parsed correctly
+     * @throws IOException if the snapshot or journal cannot be read
      */
     public static TaskList load() throws ChattyExceptions, IOException {
-        assert FILE_PATH != null && !FILE_PATH.isBlank() : "FILE_PATH should not be null or blank";
+        flush();
+        synchronized (LOCK) {
+            textSnapshotTasks = null;
+        }
+        Files.createDirectories(dataDirectory);
+        Format source = format;
+        Path file = snapshotPath(format);
+        if (file == null && snapshotPath(format.other()) != null) {
+            source = format.other();
+            file = snapshotPath(source);
+        }
 
-        File file = new File(FILE_PATH);
+        Snapshot snapshot;
+        if (file == null) {
+            snapshot = new Snapshot(new TaskList(), 0);
+        } else if (source == Format.BINARY) {
+            TreeMap<Long, Path> generations = binarySnapshots();
+            deleteObsolete(generations.headMap(generations.lastKey()).values());
+            snapshot = BinarySnapshot.read(file);
+        } else {
+            snapshot = readText(file);
+        }
 
-        File parent = file.getParentFile();
-        if (parent != null && !parent.exists()) {
-            parent.mkdirs();
+        TaskList tasks = snapshot.tasks;
+        journalSegment = snapshot.journalSegment + 1;
+        journalRecords = 0;
+        boolean damaged = false;
+        for (var segment : journalSegments().entrySet()) {
+            if (segment.getKey() <= snapshot.journalSegment) {
+                // already folded into the snapshot by an interrupted compaction
+                Files.delete(segment.getValue());
+                continue;
+            }
+            if (damaged) {
+                // its records follow ones that were lost, so they cannot be applied
+                System.err.println("Journal " + segment.getValue() + " follows a damaged one and was moved to "
+                        + segment.getValue() + CORRUPT_SUFFIX);
+                setAside(segment.getValue(), 0);
+                Files.delete(segment.getValue());
+                continue;
+            }
+            journalSegment = segment.getKey();
+            journalRecords = replay(tasks, segment.getValue());
+            damaged = journalRecords < 0;
+            if (damaged) {
+                journalRecords = -journalRecords - 1;
+            }
         }
 
-        if (!file.exists()) {
-            file.createNewFile();
+        if (source != format) {
+            writeToFile(tasks);
+            if (source == Format.BINARY) {
+                deleteObsolete(binarySnapshots().values());
+            } else {
+                Files.delete(file);
+            }
         }
+        return tasks;
+    }
+
+    /**
+     * Reads a text snapshot, parsing each line into a {@link Task} using the
+     * {@link Parser}. If a task line indicates completion, the task will be
+     * marked as completed.
+     *
+     * <p>Large snapshots are parsed in parallel by {@link ParallelTextReader}
+     * when the load parallelism allows it.</p>
+     */
+    private static Snapshot readText(Path file) throws ChattyExceptions, IOException {
+        verifyTextChecksum(file);
+        int parallelism = loadParallelism;
+        Snapshot snapshot = parallelism > 1 && Files.size(file) >= PARALLEL_LOAD_MIN_BYTES
+                ? ParallelTextReader.read(file, parallelism)
+                : readTextLines(file);
+        ensureIncreasingIds(snapshot.tasks);
+        return snapshot;
+    }
 
-        Scanner s = new Scanner(file);
-        assert s != null : "Scanner should not be null";
+    private static Snapshot readTextLines(Path file) throws ChattyExceptions, IOException {
         TaskList tasks = new TaskList();
-        while (s.hasNext()) {
-            String taskDescription = s.nextLine();
-            assert taskDescription != null : "Task description line should not be null";
-            assert taskDescription.contains("[") : "Saved task format should contain type indicator";
+        long snapshotSegment = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String taskDescription;
+            while ((taskDescription = reader.readLine()) != null) {
+                if (taskDescription.startsWith(JOURNAL_METADATA)) {
+                    snapshotSegment = Long.parseLong(taskDescription.substring(JOURNAL_METADATA.length()).trim());
+                    continue;
+                }
+                if (taskDescription.startsWith(NEXT_ID_METADATA)) {
+                    tasks.setNextId(Integer.parseInt(taskDescription.substring(NEXT_ID_METADATA.length()).trim()));
+                    continue;
+                }
+                if (taskDescription.isBlank() || taskDescription.startsWith(METADATA_PREFIX)) {
+                    continue;
+                }
+                assert taskDescription.contains("[") : "Saved task format should contain type indicator";
+                tasks.add(parseTaskLine(taskDescription));
+            }
+        }
+        return new Snapshot(tasks, snapshotSegment);
+    }
 
-            Task parsedTask = Parser.parseTaskFromFile(taskDescription);
-            assert parsedTask != null : "Parsed task should not be null";
-            tasks.add(parsedTask);
-            if (taskDescription.contains("[X]")) {
-                assert tasks.size() > 0 : "There must be a task before marking complete";
-                tasks.get(tasks.size() - 1).setComplete();
+    /**
+     * Checks the checksum line that ends a text snapshot against the bytes before
+     * it. Snapshots written before checksums were added have no such line and are
+     * accepted as they are.
+     *
+     * @throws IOException if the file cannot be read or does not match its checksum
+     */
+    private static void verifyTextChecksum(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int tailBytes = (int) Math.min(size, CHECKSUM_METADATA.length() + 2 * Integer.BYTES + 2);
+            ByteBuffer tail = ByteBuffer.allocate(tailBytes);
+            while (tail.hasRemaining() && channel.read(tail, size - tailBytes + tail.position()) >= 0) {
+                // keep reading until the tail is full
+            }
+            String tailText = new String(tail.array(), 0, tail.position(), StandardCharsets.ISO_8859_1);
+            int start = tailText.lastIndexOf(CHECKSUM_METADATA);
+            if (start < 0 || (start > 0 && tailText.charAt(start - 1) != '\n')) {
+                return;
+            }
+
+            long expected;
+            try {
+                expected = Long.parseLong(tailText.substring(start + CHECKSUM_METADATA.length()).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt snapshot checksum: " + file, e);
+            }
+            CRC32C checksum = new CRC32C();
+            updateChecksum(checksum, channel, 0, size - tailBytes + start, ByteBuffer.allocate(COPY_BUFFER_BYTES));
+            if (checksum.getValue() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
             }
         }
-        return tasks;
+    }
+
+    /**
+     * Gives every task without an ID, or with an ID out of order, the next ID
+     * after the one before it, so that IDs increase along the list as they do
+     * when tasks are added. Snapshots written before tasks had IDs start each line
+     * with the task's position, which becomes its ID.
+     */
+    private static void ensureIncreasingIds(TaskList tasks) {
+        int lastId = 0;
+        for (Task task : tasks) {
+            if (task.getId() <= lastId) {
+                task.setId(lastId + 1);
+            }
+            lastId = task.getId();
+        }
+        tasks.setNextId(Math.max(tasks.getNextId(), lastId + 1));
+    }
+
+    /**
+     * Parses a saved task line such as {@code "12. [T][X] read book"}, taking the
+     * leading number as the task ID.
+     */
+    static Task parseTaskLine(String taskDescription) throws ChattyExceptions {
+        Task parsedTask = Parser.parseTaskFromFile(taskDescription);
+        assert parsedTask != null : "Parsed task should not be null";
+        if (taskDescription.contains("[X]")) {
+            parsedTask.setComplete();
+        }
+        int id = leadingId(taskDescription);
+        if (id > 0) {
+            parsedTask.setId(id);
+        }
+        return parsedTask;
+    }
+
+    /**
+     * Returns the number a task line starts with, or 0 if it starts with none.
+     */
+    private static int leadingId(String taskDescription) {
+        int id = 0;
+        int i = 0;
+        for (; i < taskDescription.length() && Character.isDigit(taskDescription.charAt(i)); i++) {
+            if (id > (Integer.MAX_VALUE - 9) / 10) {
+                return 0;
+            }
+            id = id * 10 + (taskDescription.charAt(i) - '0');
+        }
+        return i < taskDescription.length() && taskDescription.charAt(i) == '.' ? id : 0;
+    }
+
+    private static TreeMap<Long, Path> journalSegments() throws IOException {
+        return numberedFiles(JOURNAL_PREFIX);
+    }
+
+    /**
+     * Returns the files in the data directory named by the prefix and a number, by number.
+     */
+    private static TreeMap<Long, Path> numberedFiles(String prefix) throws IOException {
+        TreeMap<Long, Path> numbered = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDirectory, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                try {
+                    numbered.put(Long.parseLong(suffix), file);
+                } catch (NumberFormatException e) {
+                    // a temporary or set-aside file
+                }
+            }
+        }
+        return numbered;
+    }
+
+    /**
+     * Applies every record of a journal segment to the task list.
+     *
+     * <p>Replay stops at the first line that is not ended by a newline, does not
+     * match its length or checksum, or cannot be applied. That can be the torn
+     * last record of a crashed append, or damage to the file. The rest of the
+     * segment is then moved aside with {@link #setAside} and a warning printed.</p>
+     *
+     * @return the number of records applied, or {@code -1 - applied} if replay
+     *         stopped before the end of the segment
+     */
+    private static int replay(TaskList tasks, Path segment) throws IOException {
+        byte[] journal = Files.readAllBytes(segment);
+        int applied = 0;
+        int start = 0;
+        while (start < journal.length) {
+            int end = start;
+            while (end < journal.length && journal[end] != '\n') {
+                end++;
+            }
+            String record = end < journal.length ? unframe(journal, start, end) : null;
+            if (record == null) {
+                break;
+            }
+            if (!record.isEmpty()) {
+                try {
+                    applyRecord(tasks, record);
+                } catch (ChattyExceptions | RuntimeException e) {
+                    break;
+                }
+                applied++;
+            }
+            start = end + 1;
+        }
+        if (start == journal.length) {
+            return applied;
+        }
+        System.err.println("Journal " + segment + " is damaged after " + applied
+                + " record(s); the rest was moved to " + segment + CORRUPT_SUFFIX);
+        setAside(segment, start);
+        return -1 - applied;
+    }
+
+    /**
+     * Returns the record of a journal line without its frame, or {@code null} if
+     * it does not match its length or checksum. A line without a frame is a
+     * record written before records were framed, and is returned as it is.
+     */
+    private static String unframe(byte[] journal, int start, int end) {
+        if (end > start && journal[end - 1] == '\r') {
+            end--;
+        }
+        if (start == end || !Character.isDigit(journal[start])) {
+            return new String(journal, start, end - start, StandardCharsets.UTF_8);
+        }
+        int lengthEnd = indexOf(journal, FRAME_SEPARATOR, start, end);
+        int crcEnd = indexOf(journal, FRAME_SEPARATOR, lengthEnd + 1, end);
+        if (lengthEnd < 0 || crcEnd < 0) {
+            return null;
+        }
+        try {
+            int length = Integer.parseInt(new String(journal, start, lengthEnd - start, StandardCharsets.US_ASCII));
+            long crc = Long.parseLong(new String(journal, lengthEnd + 1, crcEnd - lengthEnd - 1,
+                    StandardCharsets.US_ASCII), 16);
+            if (length != end - crcEnd - 1) {
+                return null;
+            }
+            CRC32C checksum = new CRC32C();
+            checksum.update(journal, crcEnd + 1, length);
+            return checksum.getValue() == crc ? new String(journal, crcEnd + 1, length, StandardCharsets.UTF_8) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies a journal segment from the given byte on to a {@code .corrupt} file
+     * next to it, so nothing is lost for good, and truncates the segment there.
+     */
+    private static void setAside(Path segment, long from) throws IOException {
+        Path corrupt = segment.resolveSibling(segment.getFileName() + CORRUPT_SUFFIX);
+        try (FileChannel journal = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel aside = FileChannel.open(corrupt, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.APPEND)) {
+            long length = journal.size() - from;
+            for (long copied = 0; copied < length; ) {
+                copied += journal.transferTo(from + copied, length - copied, aside);
+            }
+            aside.force(true);
+            journal.truncate(from);
+            journal.force(true);
+        }
+    }
+
+    private static void applyRecord(TaskList tasks, String record) throws ChattyExceptions {
+        char type = record.charAt(0);
+        if (type == RECORD_ADD) {
+            Task task = parseTaskLine(record.substring(2));
+            if (task.getId() < tasks.getNextId()) {
+                // a record from before tasks had IDs, which gets the ID it was given then
+                task.setId(tasks.getNextId());
+            }
+            tasks.add(task);
+            return;
+        }
+
+        BitSet positions = new BitSet(tasks.size());
+        for (String index : record.substring(1).trim().split(" ")) {
+            int separator = index.indexOf(RANGE_SEPARATOR, 1);
+            int first = Integer.parseInt(separator < 0 ? index : index.substring(0, separator));
+            int last = separator < 0 ? first : Integer.parseInt(index.substring(separator + 1));
+            if (first < 0 || last < first || last >= tasks.size()) {
+                throw new IndexOutOfBoundsException("Journal index out of bounds: " + index);
+            }
+            positions.set(first, last + 1);
+        }
+        switch (type) {
+        case RECORD_MARK -> tasks.markTasks(positions);
+        case RECORD_UNMARK -> tasks.unmarkTasks(positions);
+        case RECORD_DELETE -> tasks.deleteTasks(positions);
+        default -> throw new IllegalArgumentException("Unknown journal record: " + record);
+        }
     }
 }
@@ -0,0 +1,21 @@
+package chatty.task;
+
+import java.util.BitSet;
+
+/**
+ * A backing list of a {@link TaskList} that can remove the tasks at many
+ * positions by compacting its own storage in one pass.
+ *
+ * <p>{@link TaskList#deleteTasks(BitSet)} uses it rather than moving each
+ * remaining task down with {@code get} and {@code set}, which for a list that
+ * creates its tasks on demand would create every moved task.</p>
+ */
+public interface BulkRemovable {
+    /**
+     * Removes the elements at the set positions of a bitmap, moving the others
+     * down so that they keep their order.
+     *
+     * @param positions the positions (0-based) to remove, all less than the size of the list
+     */
+    void removePositions(BitSet positions);
+}
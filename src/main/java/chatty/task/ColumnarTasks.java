@@ -0,0 +1,301 @@
+package chatty.task;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * A task list that stores each field of its tasks in a primitive column.
+ *
+ * <p>A task takes one byte for its type, one bit for its completion status, two
+ * ints for its dates in epoch days, an int for its ID and one reference into a
+ * pool of names, in which equal names are stored once. Compared with a list of
+ * {@link Task} objects this avoids an object header per task and per date, and
+ * keeps the fields that queries scan next to each other in memory. Names of
+ * removed tasks stay in the pool until it holds more than twice as many names
+ * as there are tasks, when it is rebuilt from the names still in use.</p>
+ *
+ * <p>{@link #get(int)} creates a new {@code Task} view of the stored fields on
+ * every call, so a view is not updated by later changes to the list, and a
+ * change to a view is only kept once it is written back with
+ * {@link #set(int, Task)}, as {@link TaskList} does after marking a task. Views
+ * do not share the cached string of a stored task, so each one renders its
+ * string again when first shown or saved.</p>
+ */
+final class ColumnarTasks extends AbstractList<Task> implements BulkRemovable, CopyableTasks {
+    // the type tag doubles as the number of dates stored for the task
+    private static final byte TYPE_TODO = 0;
+    private static final byte TYPE_DEADLINE = 1;
+    private static final byte TYPE_EVENT = 2;
+    /** The fewest pooled names for which removing tasks rebuilds the pool. */
+    private static final int MIN_POOL_REBUILD = 16;
+
+    private byte[] types = new byte[8];
+    private final BitSet complete = new BitSet();
+    /** The deadline of a deadline or the start of an event, in epoch days. */
+    private int[] startDays = new int[8];
+    /** The end of an event, in epoch days. */
+    private int[] endDays = new int[8];
+    private String[] names = new String[8];
+    private int[] ids = new int[8];
+    /**
+     * The distinct names, in an open-addressed hash table so that pooling a name
+     * costs one slot rather than a map entry object.
+     */
+    private String[] namePool = new String[16];
+    private int pooledNames;
+    private int size;
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        Task task;
+        switch (types[index]) {
+        case TYPE_TODO:
+            task = new Todo(names[index]);
+            break;
+        case TYPE_DEADLINE:
+            task = new Deadline(names[index], LocalDate.ofEpochDay(startDays[index]));
+            break;
+        default:
+            task = new Event(names[index], LocalDate.ofEpochDay(startDays[index]),
+                    LocalDate.ofEpochDay(endDays[index]));
+            break;
+        }
+        if (complete.get(index)) {
+            task.setComplete();
+        }
+        if (ids[index] != 0) {
+            task.setId(ids[index]);
+        }
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        Task previous = get(index);
+        store(index, task);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        Objects.checkIndex(index, size + 1);
+        if (size == types.length) {
+            int capacity = size + (size >> 1);
+            types = Arrays.copyOf(types, capacity);
+            startDays = Arrays.copyOf(startDays, capacity);
+            endDays = Arrays.copyOf(endDays, capacity);
+            names = Arrays.copyOf(names, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        if (index < size) {
+            System.arraycopy(types, index, types, index + 1, size - index);
+            System.arraycopy(startDays, index, startDays, index + 1, size - index);
+            System.arraycopy(endDays, index, endDays, index + 1, size - index);
+            System.arraycopy(names, index, names, index + 1, size - index);
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            shiftCompletion(index, size, index + 1);
+        }
+        size++;
+        store(index, task);
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        int moved = size - index - 1;
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(startDays, index + 1, startDays, index, moved);
+        System.arraycopy(endDays, index + 1, endDays, index, moved);
+        System.arraycopy(names, index + 1, names, index, moved);
+        System.arraycopy(ids, index + 1, ids, index, moved);
+        shiftCompletion(index + 1, size, index);
+        size--;
+        names[size] = null;
+        shrinkPoolIfSparse();
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        int moved = size - toIndex;
+        System.arraycopy(types, toIndex, types, fromIndex, moved);
+        System.arraycopy(startDays, toIndex, startDays, fromIndex, moved);
+        System.arraycopy(endDays, toIndex, endDays, fromIndex, moved);
+        System.arraycopy(names, toIndex, names, fromIndex, moved);
+        System.arraycopy(ids, toIndex, ids, fromIndex, moved);
+        shiftCompletion(toIndex, size, fromIndex);
+        int newSize = size - (toIndex - fromIndex);
+        Arrays.fill(names, newSize, size, null);
+        size = newSize;
+        shrinkPoolIfSparse();
+        modCount++;
+    }
+
+    /**
+     * Removes the tasks at the set positions by copying each run of remaining
+     * tasks down in every column, without creating a {@code Task} for any of them.
+     */
+    @Override
+    public void removePositions(BitSet positions) {
+        int first = positions.nextSetBit(0);
+        if (first < 0) {
+            return;
+        }
+        Objects.checkIndex(positions.length() - 1, size);
+        int kept = first;
+        for (int start = positions.nextClearBit(first); start < size; ) {
+            int end = positions.nextSetBit(start);
+            if (end < 0 || end > size) {
+                end = size;
+            }
+            int run = end - start;
+            System.arraycopy(types, start, types, kept, run);
+            System.arraycopy(startDays, start, startDays, kept, run);
+            System.arraycopy(endDays, start, endDays, kept, run);
+            System.arraycopy(names, start, names, kept, run);
+            System.arraycopy(ids, start, ids, kept, run);
+            for (int i = 0; i < run; i++) {
+                complete.set(kept + i, complete.get(start + i));
+            }
+            kept += run;
+            start = positions.nextClearBit(end);
+        }
+        complete.clear(kept, size);
+        Arrays.fill(names, kept, size, null);
+        size = kept;
+        shrinkPoolIfSparse();
+        modCount++;
+    }
+
+    /**
+     * Returns a copy of the list with its own columns and the same name pool.
+     */
+    @Override
+    public ColumnarTasks copy() {
+        int capacity = Math.max(size, types.length >> 1);
+        ColumnarTasks copy = new ColumnarTasks();
+        copy.types = Arrays.copyOf(types, capacity);
+        copy.complete.or(complete);
+        copy.startDays = Arrays.copyOf(startDays, capacity);
+        copy.endDays = Arrays.copyOf(endDays, capacity);
+        copy.names = Arrays.copyOf(names, capacity);
+        copy.ids = Arrays.copyOf(ids, capacity);
+        copy.namePool = namePool.clone();
+        copy.pooledNames = pooledNames;
+        copy.size = size;
+        return copy;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        complete.clear();
+        namePool = new String[16];
+        pooledNames = 0;
+        size = 0;
+        modCount++;
+    }
+
+    private void store(int index, Task task) {
+        if (task instanceof Deadline deadline) {
+            types[index] = TYPE_DEADLINE;
+            startDays[index] = Math.toIntExact(deadline.getDeadline().toEpochDay());
+        } else if (task instanceof Event event) {
+            types[index] = TYPE_EVENT;
+            startDays[index] = Math.toIntExact(event.getStartDate().toEpochDay());
+            endDays[index] = Math.toIntExact(event.getEndDate().toEpochDay());
+        } else {
+            assert task instanceof Todo : "Unknown task type " + task.getClass();
+            types[index] = TYPE_TODO;
+        }
+        names[index] = pool(task.getName());
+        ids[index] = task.getId();
+        complete.set(index, task.isComplete());
+    }
+
+    /**
+     * Returns the pooled name equal to the given one, adding it if there is none.
+     */
+    private String pool(String name) {
+        int mask = namePool.length - 1;
+        for (int slot = name.hashCode() & mask; ; slot = (slot + 1) & mask) {
+            String pooled = namePool[slot];
+            if (pooled == null) {
+                namePool[slot] = name;
+                if (++pooledNames * 2 > namePool.length) {
+                    growPool();
+                }
+                return name;
+            }
+            if (pooled.equals(name)) {
+                return pooled;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the name pool from the names of the remaining tasks once most of
+     * its names belong to removed tasks. A rebuild costs time linear in the
+     * number of tasks and leaves at most one pooled name per task, so at least
+     * half as many removals or new names are needed before the next one.
+     */
+    private void shrinkPoolIfSparse() {
+        if (pooledNames <= MIN_POOL_REBUILD || pooledNames <= 2 * size) {
+            return;
+        }
+        int capacity = 16;
+        while (capacity < 2 * size) {
+            capacity <<= 1;
+        }
+        namePool = new String[capacity];
+        pooledNames = 0;
+        for (int i = 0; i < size; i++) {
+            pool(names[i]);
+        }
+    }
+
+    /**
+     * Returns the number of distinct names in the pool.
+     */
+    int pooledNames() {
+        return pooledNames;
+    }
+
+    private void growPool() {
+        String[] old = namePool;
+        namePool = new String[old.length * 2];
+        int mask = namePool.length - 1;
+        for (String name : old) {
+            if (name != null) {
+                int slot = name.hashCode() & mask;
+                while (namePool[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                namePool[slot] = name;
+            }
+        }
+    }
+
+    /**
+     * Moves the completion bits of positions {@code [from, to)} so that they
+     * start at {@code destination}, clearing the positions they leave.
+     */
+    private void shiftCompletion(int from, int to, int destination) {
+        BitSet moved = complete.get(from, to);
+        complete.clear(Math.min(from, destination), Math.max(to, destination + to - from));
+        for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+            complete.set(destination + i);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package chatty.task;
+
+import java.util.List;
+
+/**
+ * A backing list of a {@link TaskList} that can copy itself for a
+ * {@link TaskList#snapshot()} without creating every task.
+ *
+ * <p>{@link TaskList#snapshot()} uses it rather than copying the tasks into an
+ * {@code ArrayList}, which for a list that creates its tasks on demand would
+ * create them all and keep them until the next change.</p>
+ */
+public interface CopyableTasks {
+    /**
+     * Returns a copy of the list that later changes to this list do not affect.
+     *
+     * @return the copy
+     */
+    List<Task> copy();
+}
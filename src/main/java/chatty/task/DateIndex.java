@@ -0,0 +1,228 @@
+package chatty.task;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An interval index over the dates of deadlines and events, used to answer
+ * {@code due} queries in O(log n + k) rather than by asking every task.
+ *
+ * <p>Deadlines are stored as the one-day interval {@code [by, by]} and events as
+ * {@code [from, to]}, in epoch days. The intervals live in a treap ordered by
+ * start day, where each node also tracks the latest end day in its subtree so
+ * that whole subtrees ending before the queried range can be skipped.</p>
+ *
+ * <p>Like {@link KeywordIndex}, tasks are identified by sequence numbers that
+ * increase along the list, so matches can be returned in list order.</p>
+ */
+final class DateIndex {
+    private static final class Node {
+        final int start;
+        final int end;
+        final int sequenceNumber;
+        final int priority;
+        int maxEnd;
+        Node left;
+        Node right;
+
+        Node(int start, int end, int sequenceNumber, int priority) {
+            this.start = start;
+            this.end = end;
+            this.sequenceNumber = sequenceNumber;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    /** The sequence number of the task at each position of the list. */
+    private final IntList sequenceNumbers = new IntList();
+    private Node root;
+    private int nextSequenceNumber;
+    private int seed = 0x2545F491;
+
+    /**
+     * Indexes a task appended to the end of the list.
+     */
+    void add(Task task) {
+        int sequenceNumber = nextSequenceNumber++;
+        sequenceNumbers.add(sequenceNumber);
+
+        if (task instanceof Deadline deadline) {
+            int by = Math.toIntExact(deadline.getDeadline().toEpochDay());
+            root = insert(root, new Node(by, by, sequenceNumber, nextPriority()));
+        } else if (task instanceof Event event) {
+            int from = Math.toIntExact(event.getStartDate().toEpochDay());
+            int to = Math.toIntExact(event.getEndDate().toEpochDay());
+            if (from <= to) {
+                root = insert(root, new Node(from, to, sequenceNumber, nextPriority()));
+            } else {
+                // Event#willOccurOn only matches the two end points of a reversed event
+                root = insert(root, new Node(from, from, sequenceNumber, nextPriority()));
+                root = insert(root, new Node(to, to, sequenceNumber, nextPriority()));
+            }
+        }
+    }
+
+    /**
+     * Removes the task at the given position from the index.
+     */
+    void remove(int position, Task task) {
+        removeIntervals(sequenceNumbers.removeAt(position), task);
+    }
+
+    /**
+     * Removes the tasks at the given positions from the index.
+     *
+     * @param positions the positions of the removed tasks
+     * @param removed   the removed tasks, in the order of their positions
+     */
+    void removeAll(BitSet positions, TaskList removed) {
+        int r = 0;
+        for (int p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p + 1)) {
+            removeIntervals(sequenceNumbers.get(p), removed.get(r++));
+        }
+        sequenceNumbers.removeAll(positions);
+    }
+
+    private void removeIntervals(int sequenceNumber, Task task) {
+        if (task instanceof Deadline deadline) {
+            root = delete(root, Math.toIntExact(deadline.getDeadline().toEpochDay()), sequenceNumber);
+        } else if (task instanceof Event event) {
+            root = delete(root, Math.toIntExact(event.getStartDate().toEpochDay()), sequenceNumber);
+            root = delete(root, Math.toIntExact(event.getEndDate().toEpochDay()), sequenceNumber);
+        }
+    }
+
+    /**
+     * Returns the positions, in ascending order, of the tasks that occur on at
+     * least one day between {@code from} and {@code to} inclusive.
+     *
+     * @param from the first day of the range, in epoch days
+     * @param to   the last day of the range, in epoch days
+     * @return the matching positions
+     */
+    IntList overlapping(int from, int to) {
+        IntList matches = new IntList();
+        collect(root, from, to, matches);
+
+        int[] sorted = new int[matches.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = matches.get(i);
+        }
+        Arrays.sort(sorted);
+
+        IntList positions = new IntList(sorted.length);
+        for (int i = 0; i < sorted.length; i++) {
+            if (i > 0 && sorted[i] == sorted[i - 1]) {
+                continue;
+            }
+            positions.add(sequenceNumbers.binarySearch(sorted[i]));
+        }
+        return positions;
+    }
+
+    private static void collect(Node node, int from, int to, IntList matches) {
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        collect(node.left, from, to, matches);
+        if (node.start <= to) {
+            if (node.end >= from) {
+                matches.add(node.sequenceNumber);
+            }
+            collect(node.right, from, to, matches);
+        }
+    }
+
+    private int nextPriority() {
+        // xorshift: cheap pseudo-random priorities keep the treap balanced
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static boolean isBefore(Node node, int start, int sequenceNumber) {
+        return node.start < start || (node.start == start && node.sequenceNumber < sequenceNumber);
+    }
+
+    private static Node insert(Node node, Node toInsert) {
+        if (node == null) {
+            return toInsert;
+        }
+        if (toInsert.priority > node.priority) {
+            Node[] halves = split(node, toInsert.start, toInsert.sequenceNumber);
+            toInsert.left = halves[0];
+            toInsert.right = halves[1];
+            return update(toInsert);
+        }
+        if (isBefore(toInsert, node.start, node.sequenceNumber)) {
+            node.left = insert(node.left, toInsert);
+        } else {
+            node.right = insert(node.right, toInsert);
+        }
+        return update(node);
+    }
+
+    /**
+     * Splits a subtree into the nodes ordered before {@code (start, sequenceNumber)}
+     * and the rest.
+     */
+    private static Node[] split(Node node, int start, int sequenceNumber) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        if (isBefore(node, start, sequenceNumber)) {
+            Node[] halves = split(node.right, start, sequenceNumber);
+            node.right = halves[0];
+            halves[0] = update(node);
+            return halves;
+        }
+        Node[] halves = split(node.left, start, sequenceNumber);
+        node.left = halves[1];
+        halves[1] = update(node);
+        return halves;
+    }
+
+    private static Node delete(Node node, int start, int sequenceNumber) {
+        if (node == null) {
+            return null;
+        }
+        if (node.start == start && node.sequenceNumber == sequenceNumber) {
+            return merge(node.left, node.right);
+        }
+        if (isBefore(node, start, sequenceNumber)) {
+            node.right = delete(node.right, start, sequenceNumber);
+        } else {
+            node.left = delete(node.left, start, sequenceNumber);
+        }
+        return update(node);
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private static Node update(Node node) {
+        int maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+        return node;
+    }
+}
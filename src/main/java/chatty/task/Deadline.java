@@ -1,7 +1,6 @@
 package chatty.task;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Represents tasks that have a deadline.
@@ -35,6 +34,11 @@ public class Deadline extends Task{
         return this.by;
     }
 
+    @Override
+    protected Task copy() {
+        return new Deadline(this.name, this.by);
+    }
+
     /**
      * Returns a string representation of the deadline task for storage and display.
      *
@@ -43,9 +47,9 @@ public class Deadline extends Task{
      * @return a formatted string representing the deadline task
      */
     @Override
-    public String toString() {
-        return "[D]" + super.toString() + "(by: "
-                + this.by.format(DateTimeFormatter.ofPattern("MMM dd yyyy")) + ")";
+    protected String render() {
+        return "[D]" + renderStatusAndName() + "(by: "
+                + this.by.format(DATE_FORMAT) + ")";
     }
 
 }
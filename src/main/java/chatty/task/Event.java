@@ -1,7 +1,6 @@
 package chatty.task;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Represents an event task that occurs over a period of time.
@@ -40,6 +39,11 @@ public class Event extends Task {
         return this.to;
     }
 
+    @Override
+    protected Task copy() {
+        return new Event(this.name, this.from, this.to);
+    }
+
     @Override
     public boolean willOccurOn(LocalDate date) {
         return this.getStartDate().isEqual(date)
@@ -56,13 +60,13 @@ public class Event extends Task {
      * @return a formatted string representing the event task
      */
     @Override
-    public String toString() {
+    protected String render() {
         return "[E]"
-                + super.toString()
+                + renderStatusAndName()
                 + "(from: "
-                + this.from.format(DateTimeFormatter.ofPattern("MMM dd yyyy"))
+                + this.from.format(DATE_FORMAT)
                 + " to: "
-                + this.to.format(DateTimeFormatter.ofPattern("MMM dd yyyy"))
+                + this.to.format(DATE_FORMAT)
                 + ")";
     }
 }
@@ -0,0 +1,141 @@
+package chatty.task;
+
+import java.util.BitSet;
+
+/**
+ * A map from stable task IDs to the current positions of the tasks, used to
+ * resolve {@code #id} references in O(1).
+ *
+ * <p>IDs are kept in an open-addressed hash table of primitive ints, with the ID
+ * of the task at each position alongside. Removing tasks shifts the positions of
+ * the tasks after them, so their entries are renumbered, which costs no more
+ * than shifting the tasks themselves.</p>
+ */
+final class IdIndex {
+    private static final int NO_ID = 0;
+
+    /** The ID of the task at each position of the list. */
+    private final IntList ids = new IntList();
+    private int[] keys = new int[16];
+    private int[] positions = new int[16];
+    private int count;
+
+    /**
+     * Indexes a task appended to the end of the list.
+     */
+    void add(Task task) {
+        ids.add(task.getId());
+        put(task.getId(), ids.size() - 1);
+    }
+
+    /**
+     * Removes the task at the given position from the index.
+     */
+    void remove(int position) {
+        delete(ids.removeAt(position));
+        renumberFrom(position);
+    }
+
+    /**
+     * Removes the tasks at the given positions from the index.
+     */
+    void removeAll(BitSet removed) {
+        int first = removed.nextSetBit(0);
+        if (first < 0) {
+            return;
+        }
+        for (int p = first; p >= 0; p = removed.nextSetBit(p + 1)) {
+            delete(ids.get(p));
+        }
+        ids.removeAll(removed);
+        renumberFrom(first);
+    }
+
+    /**
+     * Returns the current position of the task with the given ID, or -1 if no
+     * task in the list has it.
+     */
+    int positionOf(int id) {
+        if (id == NO_ID) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(id) & mask; keys[slot] != NO_ID; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return positions[slot];
+            }
+        }
+        return -1;
+    }
+
+    private void renumberFrom(int position) {
+        for (int i = position; i < ids.size(); i++) {
+            put(ids.get(i), i);
+        }
+    }
+
+    private void put(int id, int position) {
+        assert id != NO_ID : "Indexed tasks should have an ID";
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (keys[slot] != NO_ID && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        positions[slot] = position;
+        if (keys[slot] == NO_ID) {
+            keys[slot] = id;
+            if (++count * 2 > keys.length) {
+                grow();
+            }
+        }
+    }
+
+    /**
+     * Removes an ID, moving later entries of its probe run back so that lookups
+     * never stop early at the emptied slot.
+     */
+    private void delete(int id) {
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (keys[slot] != id) {
+            if (keys[slot] == NO_ID) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        count--;
+        for (int next = (slot + 1) & mask; keys[next] != NO_ID; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // move the entry back unless its home lies cyclically after the emptied slot
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                positions[slot] = positions[next];
+                slot = next;
+            }
+        }
+        keys[slot] = NO_ID;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldPositions = positions;
+        keys = new int[oldKeys.length * 2];
+        positions = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_ID) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != NO_ID) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                positions[slot] = oldPositions[i];
+            }
+        }
+    }
+
+    private static int hash(int id) {
+        // IDs are consecutive, so spread them over the table
+        return id * 0x9E3779B9;
+    }
+}
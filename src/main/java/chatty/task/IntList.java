@@ -0,0 +1,98 @@
+package chatty.task;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A growable list of primitive ints, used by the task indexes to avoid boxing.
+ */
+final class IntList {
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(8);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int i) {
+        assert i >= 0 && i < size : "IntList index out of bounds";
+        return values[i];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int removeAt(int i) {
+        assert i >= 0 && i < size : "IntList index out of bounds";
+        int removed = values[i];
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes the values at the given positions, keeping the order of the rest,
+     * in a single pass.
+     */
+    void removeAll(BitSet positions) {
+        int first = positions.nextSetBit(0);
+        if (first < 0 || first >= size) {
+            return;
+        }
+        int kept = first;
+        for (int i = first; i < size; i++) {
+            if (!positions.get(i)) {
+                values[kept++] = values[i];
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Removes every value of {@code sorted} from this list in a single merging
+     * pass. Both lists must be sorted in ascending order.
+     */
+    void removeAllSorted(IntList sorted) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < sorted.size && sorted.values[j] < values[i]) {
+                j++;
+            }
+            if (j == sorted.size || sorted.values[j] != values[i]) {
+                values[kept++] = values[i];
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Returns the position of {@code value} in this list, which must be sorted
+     * in ascending order, or a negative number if it is absent.
+     */
+    int binarySearch(int value) {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    /**
+     * Removes {@code value} from this list, which must be sorted in ascending order.
+     */
+    void removeSorted(int value) {
+        int i = binarySearch(value);
+        if (i >= 0) {
+            removeAt(i);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package chatty.task;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * An inverted index from the three-character substrings (trigrams) of task
+ * names to the tasks containing them, used to answer {@code find} without
+ * scanning every task.
+ *
+ * <p>Indexing trigrams rather than whole words keeps the substring semantics of
+ * {@code find}: every trigram of a keyword occurs in any name containing that
+ * keyword, so the posting lists give a small set of candidates that only need to
+ * be confirmed with {@link String#contains}. Keywords shorter than three
+ * characters cannot be looked up and fall back to checking every task.</p>
+ *
+ * <p>Each indexed task gets a sequence number. Tasks are only ever appended or
+ * removed, so sequence numbers increase along the list and posting lists of
+ * sequence numbers stay in list order.</p>
+ */
+final class KeywordIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    /** The sequence number of the task at each position of the list. */
+    private final IntList sequenceNumbers = new IntList();
+    private final HashMap<Long, IntList> postings = new HashMap<>();
+    private int nextSequenceNumber;
+
+    /**
+     * Indexes a task appended to the end of the list.
+     */
+    void add(Task task) {
+        int sequenceNumber = nextSequenceNumber++;
+        sequenceNumbers.add(sequenceNumber);
+
+        String name = task.getName();
+        for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+            IntList posting = postings.computeIfAbsent(gram(name, i), gram -> new IntList(2));
+            // a trigram repeated within the name is already posted
+            if (posting.size() == 0 || posting.get(posting.size() - 1) != sequenceNumber) {
+                posting.add(sequenceNumber);
+            }
+        }
+    }
+
+    /**
+     * Removes the task at the given position from the index.
+     */
+    void remove(int position, Task task) {
+        int sequenceNumber = sequenceNumbers.removeAt(position);
+
+        String name = task.getName();
+        for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+            long gram = gram(name, i);
+            IntList posting = postings.get(gram);
+            if (posting != null) {
+                posting.removeSorted(sequenceNumber);
+                if (posting.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the tasks at the given positions from the index, compacting every
+     * affected posting list once however many of its tasks are removed.
+     *
+     * @param positions the positions of the removed tasks
+     * @param removed   the removed tasks, in the order of their positions
+     */
+    void removeAll(BitSet positions, TaskList removed) {
+        HashMap<Long, IntList> removedByGram = new HashMap<>();
+        int r = 0;
+        for (int p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p + 1)) {
+            int sequenceNumber = sequenceNumbers.get(p);
+            String name = removed.get(r++).getName();
+            for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+                IntList sequenceNumbersOfGram = removedByGram.computeIfAbsent(gram(name, i), gram -> new IntList(2));
+                int last = sequenceNumbersOfGram.size() - 1;
+                if (last < 0 || sequenceNumbersOfGram.get(last) != sequenceNumber) {
+                    sequenceNumbersOfGram.add(sequenceNumber);
+                }
+            }
+        }
+        for (var entry : removedByGram.entrySet()) {
+            IntList posting = postings.get(entry.getKey());
+            if (posting != null) {
+                posting.removeAllSorted(entry.getValue());
+                if (posting.size() == 0) {
+                    postings.remove(entry.getKey());
+                }
+            }
+        }
+        sequenceNumbers.removeAll(positions);
+    }
+
+    /**
+     * Returns the positions, in ascending order, of the tasks whose names may
+     * contain every one of the terms.
+     *
+     * @param terms the search terms
+     * @return the candidate positions, or {@code null} if no term is long
+     *         enough to narrow the search and every task is a candidate
+     */
+    IntList candidates(String[] terms) {
+        ArrayList<IntList> termPostings = new ArrayList<>();
+        for (String term : terms) {
+            for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+                IntList posting = postings.get(gram(term, i));
+                if (posting == null) {
+                    return new IntList();
+                }
+                termPostings.add(posting);
+            }
+        }
+        if (termPostings.isEmpty()) {
+            return null;
+        }
+
+        termPostings.sort(Comparator.comparingInt(IntList::size));
+        IntList matches = termPostings.get(0);
+        for (int i = 1; i < termPostings.size() && matches.size() > 0; i++) {
+            matches = intersect(matches, termPostings.get(i));
+        }
+
+        IntList positions = new IntList(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            positions.add(sequenceNumbers.binarySearch(matches.get(i)));
+        }
+        return positions;
+    }
+
+    private static IntList intersect(IntList a, IntList b) {
+        IntList result = new IntList(Math.min(a.size(), b.size()));
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int x = a.get(i);
+            int y = b.get(j);
+            if (x == y) {
+                result.add(x);
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private static long gram(String s, int start) {
+        return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+    }
+}
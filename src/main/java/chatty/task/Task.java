@@ -1,6 +1,7 @@
 package chatty.task;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 
 /**
  * Represents a generic task in the Chatty application.
@@ -8,13 +9,35 @@ import java.time.LocalDate;
  * <p>A {@code Task} has a description and a completion status.
  * Specific task types such as {@code Todo}, {@code Deadline}, and
  * {@code Event} extend this class.</p>
+ *
+ * <p>A task must not be changed while other threads may read it. A
+ * {@link TaskList} therefore never marks a task in place once it holds it, but
+ * replaces it with a copy from {@link #withCompletion(boolean)}, so that
+ * snapshots of the list read by other threads keep seeing the old task.</p>
  */
 public abstract class Task {
+    /**
+     * The format dates are shown in, for example {@code "Mar 04 2026"}.
+     */
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd yyyy");
+
     /**
      * The description of the task.
      */
     protected final String name;
-    protected boolean isComplete;
+    protected volatile boolean isComplete;
+
+    /**
+     * The stable ID of the task, assigned when it is first added to a
+     * {@link TaskList}, or 0 if it has none yet.
+     */
+    private int id;
+
+    /**
+     * The cached result of {@link #render()}, cleared whenever the completion
+     * status changes.
+     */
+    private String rendered;
 
     /**
      * Constructs a {@code Task} with the given description.
@@ -30,13 +53,35 @@ public abstract class Task {
     /**
      * Returns a string representation of the task for display and storage.
      *
-     * <p>The string includes the completion status icon followed by
-     * the task description.</p>
+     * <p>The string is rendered once and reused until the task is marked or
+     * unmarked, so listing or saving unchanged tasks creates no new strings.</p>
      *
      * @return a formatted string representing the task
      */
     @Override
-    public String toString() {
+    public final String toString() {
+        String cached = rendered;
+        if (cached == null) {
+            cached = render();
+            rendered = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Renders the string returned by {@link #toString()}.
+     *
+     * @return a formatted string representing the task
+     */
+    protected abstract String render();
+
+    /**
+     * Returns the completion status icon followed by the task description,
+     * for example {@code "[X] read book"}.
+     *
+     * @return the status and description of the task
+     */
+    protected String renderStatusAndName() {
         return "[" + this.getStatusIcon() + "] " + this.name;
     }
 
@@ -45,11 +90,63 @@ public abstract class Task {
     }
 
     public void setComplete() {
-        this.isComplete = true;
+        if (!this.isComplete) {
+            this.isComplete = true;
+            this.rendered = null;
+        }
     }
 
     public void setIncomplete() {
-        this.isComplete = false;
+        if (this.isComplete) {
+            this.isComplete = false;
+            this.rendered = null;
+        }
+    }
+
+    /**
+     * Returns this task if it already has the given completion status, and
+     * otherwise a copy of it with that status and the same ID.
+     *
+     * @param isComplete the completion status of the returned task
+     * @return a task with the given completion status
+     */
+    public Task withCompletion(boolean isComplete) {
+        if (this.isComplete == isComplete) {
+            return this;
+        }
+        Task copy = copy();
+        copy.isComplete = isComplete;
+        copy.id = this.id;
+        return copy;
+    }
+
+    /**
+     * Returns a new incomplete task with the same type, description and dates,
+     * for {@link #withCompletion(boolean)}.
+     *
+     * @return a copy of the task
+     */
+    protected abstract Task copy();
+
+    /**
+     * Returns the stable ID of the task, which does not change when other tasks
+     * are deleted.
+     *
+     * @return the ID, or 0 if the task has not been added to a list yet
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Sets the stable ID of the task, for a task list assigning a new ID or a
+     * saved task being loaded.
+     *
+     * @param id the ID, at least 1
+     */
+    public void setId(int id) {
+        assert id > 0 : "Task IDs should be positive";
+        this.id = id;
     }
 
     public String getName() {
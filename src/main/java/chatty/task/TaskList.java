@@ -8,12 +8,15 @@ import chatty.ui.Ui;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.sql.Array;
-import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 /**
  * Manages a collection of {@code Task} objects.
@@ -23,13 +26,69 @@ import java.util.List;
  * writing tasks to a file and retrieving tasks due on a specific date.
  *
  * <p>This class acts as the main container for all tasks in the Chatty application.
+ *
+ * <p>A {@code TaskList} may only be changed by one thread at a time, and must
+ * not be read while it is changed. Other threads either query it under a lock
+ * that keeps changes out, which reuses the indexes kept up to date by every
+ * change, or read a {@link #snapshot()}, which never changes and can be read
+ * from many threads at once without locking. Indexes are built lazily by the
+ * first query, which may run on any reading thread, and published through
+ * volatile fields so that concurrent readers see them fully built.</p>
  */
 public class TaskList implements Iterable<Task> {
-    private final ArrayList<Task> tasks;
+    /** How many tasks a cancellable query looks at between checks for cancellation. */
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+    private final List<Task> tasks;
+
+    /**
+     * Index for {@link #find(String)}, built on the first search and kept up to
+     * date by every later change.
+     */
+    private volatile KeywordIndex keywordIndex;
+
+    /**
+     * Index for {@link #getTasksDueOn(LocalDate)} and
+     * {@link #getTasksDueBetween(LocalDate, LocalDate)}, built on the first
+     * query and kept up to date by every later change.
+     */
+    private volatile DateIndex dateIndex;
+
+    /**
+     * Map from task IDs to positions for {@link #positionOf(int)}, built on the
+     * first lookup and kept up to date by every later change.
+     */
+    private volatile IdIndex idIndex;
+
+    /**
+     * The ID given to the next task added without one. IDs are never reused,
+     * so they increase along the list.
+     */
+    private int nextId = 1;
+
+    /**
+     * Number of leading tasks that are still at the position they had when the
+     * list was last saved. Tasks from here on may have moved or be new.
+     */
+    private int savedPrefixLength;
+
+    /**
+     * Positions below {@link #savedPrefixLength} whose task was changed in place
+     * since the list was last saved.
+     */
+    private final BitSet changedSinceSave = new BitSet();
+
+    /**
+     * Number of changes made to the list, so that results computed from it can
+     * be tagged with the state they were computed from. A snapshot keeps the
+     * count of the list it was taken from.
+     */
+    private long modificationCount;
 
     @Override
     public Iterator<Task> iterator() {
-        return tasks.iterator();
+        return Collections.unmodifiableList(tasks).iterator();
     }
     /**
      * Constructs an empty {@code TaskList}.
@@ -38,13 +97,52 @@ public class TaskList implements Iterable<Task> {
         this.tasks = new ArrayList<>();
     }
 
+    /**
+     * Constructs a {@code TaskList} backed by the given list.
+     *
+     * <p>The backing list may create its {@code Task} objects on demand, so
+     * changes to a task are written back with {@link List#set(int, Object)}.</p>
+     *
+     * @param tasks The list holding the tasks.
+     */
+    public TaskList(List<Task> tasks) {
+        assert tasks != null : "Backing list should not be null";
+        this.tasks = tasks;
+    }
+
+    /**
+     * Constructs an empty {@code TaskList} that stores its tasks in primitive
+     * columns rather than as {@code Task} objects, which takes much less memory
+     * for large lists. Its tasks are created on demand by {@link #get(int)}.
+     *
+     * @return An empty columnar {@code TaskList}.
+     */
+    public static TaskList columnar() {
+        return new TaskList(new ColumnarTasks());
+    }
+
     /**
      * Adds a task to the task list.
      *
      * @param task The {@code Task} to be added.
      */
     public void add(Task task) {
+        if (task.getId() == 0) {
+            task.setId(nextId++);
+        } else {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
         tasks.add(task);
+        modificationCount++;
+        if (idIndex != null) {
+            idIndex.add(task);
+        }
+        if (keywordIndex != null) {
+            keywordIndex.add(task);
+        }
+        if (dateIndex != null) {
+            dateIndex.add(task);
+        }
     }
 
     /**
@@ -76,7 +174,92 @@ public class TaskList implements Iterable<Task> {
      */
     public void remove(int i) {
         assert i >= 0 && i < tasks.size() : "Task index out of bounds";
-        tasks.remove(i);
+        Task removed = tasks.remove(i);
+        modificationCount++;
+        savedPrefixLength = Math.min(savedPrefixLength, i);
+        if (idIndex != null) {
+            idIndex.remove(i);
+        }
+        if (keywordIndex != null) {
+            keywordIndex.remove(i, removed);
+        }
+        if (dateIndex != null) {
+            dateIndex.remove(i, removed);
+        }
+    }
+
+    /**
+     * Returns the current position of the task with the given stable ID.
+     *
+     * <p>The IDs are looked up in a hash map that is built on the first call and
+     * kept up to date afterwards, so a lookup takes constant time however many
+     * tasks were deleted before it.</p>
+     *
+     * @param id The ID of the task.
+     * @return The position of the task (0-based), or -1 if no task has the ID.
+     */
+    public int positionOf(int id) {
+        IdIndex index = idIndex;
+        if (index == null) {
+            index = new IdIndex();
+            for (Task task : tasks) {
+                index.add(task);
+            }
+            idIndex = index;
+        }
+        return index.positionOf(id);
+    }
+
+    /**
+     * Returns the ID the next task added without one will be given.
+     *
+     * @return The next ID.
+     */
+    public int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Sets the ID the next task added without one will be given, for example to
+     * the value saved with a loaded list, so that the IDs of deleted tasks are not
+     * given out again.
+     *
+     * @param nextId The next ID, greater than every ID in the list.
+     */
+    public void setNextId(int nextId) {
+        assert nextId > 0 : "Task IDs should be positive";
+        this.nextId = nextId;
+    }
+
+    /**
+     * Returns a copy of the list that never changes, for reading on other
+     * threads while this list goes on changing.
+     *
+     * <p>The copy holds the same {@code Task} objects, which is safe because a
+     * list replaces a task rather than changing it. A list that can copy itself,
+     * such as a columnar or memory-mapped one, does so without creating its
+     * tasks. The copy cannot be changed, and builds its own indexes when it is
+     * first queried.</p>
+     *
+     * @return An unmodifiable copy of the list.
+     */
+    public TaskList snapshot() {
+        List<Task> copy = tasks instanceof CopyableTasks copyable ? copyable.copy() : new ArrayList<>(tasks);
+        TaskList snapshot = new TaskList(Collections.unmodifiableList(copy));
+        snapshot.nextId = nextId;
+        snapshot.modificationCount = modificationCount;
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of changes made to the list so far. It increases with
+     * every task added, removed, marked, unmarked or deleted, so a list and its
+     * snapshots hold the same tasks whenever their counts are equal.
+     *
+     * @return The modification count.
+     */
+    public long getModificationCount() {
+        return modificationCount;
     }
 
     /**
@@ -91,48 +274,174 @@ public class TaskList implements Iterable<Task> {
 
     /**
      * Returns a new {@code TaskList} containing tasks whose names
-     * contain the specified keyword.
+     * contain every whitespace-separated term of the keyword.
+     *
+     * <p>Candidates are looked up in a trigram index rather than by scanning
+     * every task; terms shorter than three characters are matched by checking
+     * each task. Matching tasks are returned in list order.</p>
      *
      * @param keyword The keyword to search for.
      * @return A new {@code TaskList} containing matching tasks.
      */
     public TaskList find(String keyword) {
+        return find(keyword, NEVER_CANCELLED);
+    }
+
+    /**
+     * Returns a new {@code TaskList} containing tasks whose names contain every
+     * term of the keyword, as {@link #find(String)} does, giving up once the
+     * search is cancelled.
+     *
+     * <p>The cancellation is checked every {@value #CANCEL_CHECK_INTERVAL} tasks
+     * while the index is built and while candidates are checked. An index whose
+     * build was given up is thrown away.</p>
+     *
+     * @param keyword   The keyword to search for.
+     * @param cancelled Returns {@code true} once the search should stop.
+     * @return A new {@code TaskList} containing matching tasks.
+     * @throws CancellationException If the search was cancelled.
+     */
+    public TaskList find(String keyword, BooleanSupplier cancelled) {
+        String[] terms = keyword.trim().split("\\s+");
+        KeywordIndex index = keywordIndex;
+        if (index == null) {
+            index = new KeywordIndex();
+            int built = 0;
+            for (Task task : tasks) {
+                checkCancelled(built++, cancelled);
+                index.add(task);
+            }
+            keywordIndex = index;
+        }
+
         TaskList taskList = new TaskList();
-        for (Task task: tasks) {
-            if (task.getName().contains(keyword)) {
+        IntList candidates = index.candidates(terms);
+        int count = candidates == null ? tasks.size() : candidates.size();
+        for (int i = 0; i < count; i++) {
+            checkCancelled(i, cancelled);
+            Task task = tasks.get(candidates == null ? i : candidates.get(i));
+            if (containsAll(task.getName(), terms)) {
                 taskList.add(task);
             }
         }
         return taskList;
     }
 
+    private static boolean containsAll(String name, String[] terms) {
+        for (String term : terms) {
+            if (!name.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
-     * Returns a formatted string of tasks due on a specified date.
+     * Throws if a query has been cancelled, checking only at every
+     * {@value #CANCEL_CHECK_INTERVAL}th step so that the check costs little.
+     */
+    private static void checkCancelled(int step, BooleanSupplier cancelled) {
+        if (step % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+            throw new CancellationException("Query cancelled");
+        }
+    }
+
+    /**
+     * Returns a new {@code TaskList} containing tasks due on a specified date.
      *
-     * <p>The input must contain a date in ISO-8601 format (yyyy-MM-dd).
-     * The method checks:
+     * <p>The method checks:
      * <ul>
      *   <li>Events occurring on the specified date (including spanning events)</li>
      *   <li>Deadlines due on the specified date</li>
      * </ul>
      *
      * @param date The date the user searched for.
-     * @return A formatted message containing relevant tasks,
-     *         or a message indicating no relevant tasks were found.
-     * @throws ChattyExceptions If the input is invalid or improperly formatted.
+     * @return A new {@code TaskList} containing the relevant tasks in list order.
+     * @throws ChattyExceptions If the date cannot be converted to an epoch day.
      */
     public TaskList getTasksDueOn(LocalDate date) throws ChattyExceptions {
-        TaskList tasksDueOn = new TaskList();
-        try {
+        return getTasksDueBetween(date, date);
+    }
+
+    /**
+     * Returns a new {@code TaskList} containing tasks that are due or take place
+     * on at least one day between two dates, inclusive.
+     *
+     * <p>Matches are looked up in an interval index of deadline and event dates
+     * rather than by checking every task.</p>
+     *
+     * @param from The first date of the range.
+     * @param to   The last date of the range.
+     * @return A new {@code TaskList} containing the relevant tasks in list order.
+     * @throws ChattyExceptions If a date cannot be converted to an epoch day.
+     */
+    public TaskList getTasksDueBetween(LocalDate from, LocalDate to) throws ChattyExceptions {
+        return getTasksDueBetween(from, to, NEVER_CANCELLED);
+    }
+
+    /**
+     * Returns a new {@code TaskList} containing tasks that are due or take place
+     * between two dates, as {@link #getTasksDueBetween(LocalDate, LocalDate)}
+     * does, giving up once the query is cancelled. The cancellation is checked
+     * as in {@link #find(String, BooleanSupplier)}.
+     *
+     * @param from      The first date of the range.
+     * @param to        The last date of the range.
+     * @param cancelled Returns {@code true} once the query should stop.
+     * @return A new {@code TaskList} containing the relevant tasks in list order.
+     * @throws ChattyExceptions If a date cannot be converted to an epoch day.
+     * @throws CancellationException If the query was cancelled.
+     */
+    public TaskList getTasksDueBetween(LocalDate from, LocalDate to, BooleanSupplier cancelled)
+            throws ChattyExceptions {
+        IntList positions = positionsOverlapping(from, to, cancelled);
+        TaskList tasksDue = new TaskList();
+        for (int i = 0; i < positions.size(); i++) {
+            checkCancelled(i, cancelled);
+            tasksDue.add(tasks.get(positions.get(i)));
+        }
+        return tasksDue;
+    }
+
+    /**
+     * Returns the positions of the tasks that are due or take place on at least
+     * one day between two dates, inclusive, as {@link #getTasksDueBetween} finds them.
+     *
+     * @param from The first date of the range.
+     * @param to   The last date of the range.
+     * @return A bitmap with the positions (0-based) of the relevant tasks set.
+     * @throws ChattyExceptions If a date cannot be converted to an epoch day.
+     */
+    public BitSet positionsDueBetween(LocalDate from, LocalDate to) throws ChattyExceptions {
+        IntList positions = positionsOverlapping(from, to, NEVER_CANCELLED);
+        BitSet due = new BitSet(tasks.size());
+        for (int i = 0; i < positions.size(); i++) {
+            due.set(positions.get(i));
+        }
+        return due;
+    }
+
+    private IntList positionsOverlapping(LocalDate from, LocalDate to, BooleanSupplier cancelled)
+            throws ChattyExceptions {
+        assert !to.isBefore(from) : "Date range should not end before it starts";
+
+        DateIndex index = dateIndex;
+        if (index == null) {
+            index = new DateIndex();
+            int built = 0;
             for (Task task : tasks) {
-                if (task.willOccurOn(date)) {
-                    tasksDueOn.add(task);
-                }
+                checkCancelled(built++, cancelled);
+                index.add(task);
             }
-        } catch (DateTimeException e) {
+            dateIndex = index;
+        }
+
+        try {
+            return index.overlapping(Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()));
+        } catch (ArithmeticException e) {
             ChattyExceptions.invalidDateFormat();
         }
-        return tasksDueOn;
+        throw new AssertionError("Unreachable code reached in positionsOverlapping");
     }
 
     /**
@@ -149,32 +458,133 @@ public class TaskList implements Iterable<Task> {
         TaskList markedTasks = new TaskList();
         for (Integer taskIndex : taskIndexes) {
             assert taskIndex >= 0 && taskIndex < tasks.size() : "Parsed task index invalid";
-            this.get(taskIndex).setComplete();
-            markedTasks.add(tasks.get(taskIndex));
+            Task task = this.get(taskIndex).withCompletion(true);
+            tasks.set(taskIndex, task);
+            changedSinceSave.set(taskIndex);
+            markedTasks.add(task);
         }
+        modificationCount++;
         return markedTasks;
     }
 
+    /**
+     * Marks the tasks at the set positions of a bitmap as complete.
+     *
+     * @param positions The positions (0-based) of the tasks to mark.
+     * @return The marked tasks, in list order.
+     */
+    public TaskList markTasks(BitSet positions) {
+        return setComplete(positions, true);
+    }
+
+    /**
+     * Marks the tasks at the set positions of a bitmap as incomplete.
+     *
+     * @param positions The positions (0-based) of the tasks to unmark.
+     * @return The unmarked tasks, in list order.
+     */
+    public TaskList unmarkTasks(BitSet positions) {
+        return setComplete(positions, false);
+    }
+
+    private TaskList setComplete(BitSet positions, boolean isComplete) {
+        assert positions.length() <= tasks.size() : "Task index out of bounds";
+        TaskList changedTasks = new TaskList();
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+            Task task = tasks.get(i).withCompletion(isComplete);
+            tasks.set(i, task);
+            changedTasks.add(task);
+        }
+        changedSinceSave.or(positions);
+        modificationCount++;
+        return changedTasks;
+    }
+
     /**
      * Deletes tasks.
      *
+     * <p>The indexes may be in any order and may repeat; each task is deleted
+     * once. The given list is not changed.</p>
+     *
      * @param taskIndexes the list of task indexes the user wishes to delete.
-     * @return A formatted message containing the deleted tasks.
-     * @throws ChattyExceptions If the input is invalid or improperly formatted.
+     * @return The deleted tasks, in list order.
      */
     public TaskList deleteTask(List<Integer> taskIndexes) {
+        BitSet positions = new BitSet(tasks.size());
+        for (Integer taskIndex : taskIndexes) {
+            assert taskIndex >= 0 && taskIndex < tasks.size() : "Parsed task index invalid";
+            positions.set(taskIndex);
+        }
+        return deleteTasks(positions);
+    }
+
+    /**
+     * Deletes the tasks at the set positions of a bitmap.
+     *
+     * <p>The remaining tasks are moved down over the deleted ones in a single
+     * pass from the first deleted position, so deleting k tasks takes time
+     * linear in the length of the list rather than proportional to k times it.
+     * A backing list that is {@link BulkRemovable} compacts its own storage, so
+     * only the deleted tasks are read.</p>
+     *
+     * @param positions The positions (0-based) of the tasks to delete.
+     * @return The deleted tasks, in list order.
+     */
+    public TaskList deleteTasks(BitSet positions) {
+        assert positions.length() <= tasks.size() : "Task index out of bounds";
         TaskList deletedTasks = new TaskList();
+        int first = positions.nextSetBit(0);
+        if (first < 0) {
+            return deletedTasks;
+        }
 
-        taskIndexes.sort(Collections.reverseOrder());
+        for (int i = first; i >= 0; i = positions.nextSetBit(i + 1)) {
+            deletedTasks.add(tasks.get(i));
+        }
+        if (tasks instanceof BulkRemovable bulk) {
+            bulk.removePositions(positions);
+        } else {
+            int size = tasks.size();
+            int kept = first;
+            for (int i = positions.nextClearBit(first); i < size; i = positions.nextClearBit(i + 1)) {
+                tasks.set(kept++, tasks.get(i));
+            }
+            tasks.subList(kept, size).clear();
+        }
+        modificationCount++;
+        savedPrefixLength = Math.min(savedPrefixLength, first);
 
-        for (Integer taskIndex : taskIndexes) {
-            Task task = this.get(taskIndex);
-            deletedTasks.add(task);
-            this.remove(taskIndex);
+        if (idIndex != null) {
+            idIndex.removeAll(positions);
+        }
+        if (keywordIndex != null) {
+            keywordIndex.removeAll(positions, deletedTasks);
+        }
+        if (dateIndex != null) {
+            dateIndex.removeAll(positions, deletedTasks);
         }
         return deletedTasks;
     }
 
+    /**
+     * Returns the positions of the tasks that match a condition, for example
+     * {@code Task::isComplete} to find every completed task.
+     *
+     * @param condition The condition to test each task with.
+     * @return A bitmap with the positions (0-based) of the matching tasks set.
+     */
+    public BitSet positionsMatching(Predicate<? super Task> condition) {
+        BitSet positions = new BitSet(tasks.size());
+        int i = 0;
+        for (Task task : tasks) {
+            if (condition.test(task)) {
+                positions.set(i);
+            }
+            i++;
+        }
+        return positions;
+    }
+
     /**
      * Marks tasks as incomplete.
      *
@@ -186,10 +596,46 @@ public class TaskList implements Iterable<Task> {
         TaskList unmarkedTasks = new TaskList();
 
         for (Integer taskIndex : taskIndexes) {
-            tasks.get(taskIndex).setIncomplete();
-            unmarkedTasks.add(tasks.get(taskIndex));
+            Task task = tasks.get(taskIndex).withCompletion(false);
+            tasks.set(taskIndex, task);
+            changedSinceSave.set(taskIndex);
+            unmarkedTasks.add(task);
         }
+        modificationCount++;
         return unmarkedTasks;
     }
 
-}
\ No newline at end of file
+    /**
+     * Returns the number of leading tasks that are at the same position as when
+     * the list was last saved, so that their saved form can be reused unless
+     * {@link #nextChangedSinceSave(int)} says otherwise.
+     *
+     * <p>Only changes made through this class are tracked. A task taken from
+     * {@link #get(int)} and changed directly must be marked or unmarked through
+     * the list for the change to be saved.</p>
+     *
+     * @return The length of the unmoved prefix of the list.
+     */
+    public int getSavedPrefixLength() {
+        return savedPrefixLength;
+    }
+
+    /**
+     * Returns the first position at or after {@code from} whose task was changed
+     * in place since the list was last saved.
+     *
+     * @param from The position to start looking from (0-based).
+     * @return The position of the changed task, or {@code -1} if there is none.
+     */
+    public int nextChangedSinceSave(int from) {
+        return changedSinceSave.nextSetBit(from);
+    }
+
+    /**
+     * Records that the list has just been saved as it is now.
+     */
+    public void markSaved() {
+        savedPrefixLength = tasks.size();
+        changedSinceSave.clear();
+    }
+}
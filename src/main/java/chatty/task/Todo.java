@@ -9,8 +9,13 @@ public class Todo extends Task {
     }
 
     @Override
-    public String toString() {
-        return "[T]" + super.toString();
+    protected Task copy() {
+        return new Todo(this.name);
+    }
+
+    @Override
+    protected String render() {
+        return "[T]" + renderStatusAndName();
     }
 
     @Override
@@ -0,0 +1,257 @@
+package chatty.ui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The chat transcript, of which only the latest entries are kept in memory.
+ *
+ * <p>The entries shown are held in a window list, normally the items of a
+ * virtualized list view, which this class adds to and removes from. Every entry
+ * is also recorded in a log file, so that once the window holds more than its
+ * capacity the oldest entries are dropped from memory, and can be paged back in
+ * from the log a page at a time with {@link #showEarlier()}.</p>
+ *
+ * <p>A long reply shows only its first {@value #PREVIEW_BYTES} bytes or so, cut
+ * at a line end, and {@link #showMore(TranscriptEntry)} reads the next part from
+ * the log. A reply that lists a million tasks therefore costs the window a few
+ * kilobytes rather than tens of megabytes.</p>
+ *
+ * <p>All methods but {@link #record(TranscriptEntry, String)} must be called on
+ * the thread that owns the window, such as the JavaFX Application Thread.
+ * Recording writes the log, so it belongs on a background thread; entries must
+ * be recorded in the order they were added.</p>
+ */
+public final class Transcript implements Closeable {
+    /** The number of entries kept in the window before the oldest are dropped. */
+    public static final int DEFAULT_CAPACITY = 200;
+    /** The number of earlier entries paged back in at a time. */
+    static final int PAGE_ENTRIES = 50;
+    /** The most bytes of an entry shown at first, and added by each {@code showMore}. */
+    static final int PREVIEW_BYTES = 8 * 1024;
+
+    private final List<TranscriptEntry> window;
+    private final TranscriptLog log;
+    private final int capacity;
+    private int nextNumber;
+
+    /**
+     * Creates an empty transcript.
+     *
+     * @param window   the list holding the entries shown, which must be empty
+     * @param logFile  the file to keep the log in, which is replaced
+     * @param capacity the most entries the window holds before dropping the oldest
+     * @throws IOException if the log file cannot be created
+     */
+    public Transcript(List<TranscriptEntry> window, Path logFile, int capacity) throws IOException {
+        assert window.isEmpty() : "Window should start empty";
+        assert capacity > 0 : "Capacity should be positive";
+        this.window = window;
+        this.log = new TranscriptLog(logFile);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a temporary file for a transcript log, which is deleted when the
+     * virtual machine exits if the transcript is not closed first.
+     *
+     * @return the new file
+     * @throws IOException if the file cannot be created
+     */
+    public static Path createLogFile() throws IOException {
+        Path file = Files.createTempFile("chatty-transcript", ".log");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Adds a complete entry to the end of the transcript.
+     *
+     * @param isUser whether the user said it, rather than Chatty
+     * @param text   the text of the entry
+     * @return the new entry, to be recorded with the same text
+     */
+    public TranscriptEntry add(boolean isUser, String text) {
+        TranscriptEntry entry = new TranscriptEntry(nextNumber++, isUser);
+        show(entry, text);
+        window.add(entry);
+        trim();
+        return entry;
+    }
+
+    /**
+     * Adds a reply from Chatty that is still being worked out.
+     *
+     * @param onCancel what cancels the command, or {@code null} if it cannot be cancelled
+     * @return the new entry, to be filled in with {@link #complete(TranscriptEntry, String)}
+     */
+    public TranscriptEntry addPending(Runnable onCancel) {
+        TranscriptEntry entry = new TranscriptEntry(nextNumber++, false);
+        entry.text = "";
+        entry.isPending = true;
+        entry.onCancel = onCancel;
+        window.add(entry);
+        return entry;
+    }
+
+    /**
+     * Writes the text of an entry to the log. This may be called from any
+     * thread, but only once per entry and in the order the entries were added.
+     *
+     * @param entry the entry
+     * @param text  its full text
+     * @throws IOException if the log cannot be written
+     */
+    public void record(TranscriptEntry entry, String text) throws IOException {
+        int number = log.append(entry.isFromUser(), text);
+        assert number == entry.number : "Entries should be recorded in the order they were added";
+    }
+
+    /**
+     * Fills in a pending reply.
+     *
+     * @param entry the pending entry
+     * @param text  the reply
+     */
+    public void complete(TranscriptEntry entry, String text) {
+        assert entry.isPending : "Only a pending entry can be completed";
+        entry.isPending = false;
+        entry.onCancel = null;
+        show(entry, text);
+        refresh(entry);
+        trim();
+    }
+
+    /**
+     * Returns whether there are entries before the first one in the window.
+     */
+    public boolean hasEarlier() {
+        return !window.isEmpty() && window.get(0).number > 0;
+    }
+
+    /**
+     * Pages earlier entries back in from the log, in front of the window. They
+     * are dropped again, oldest first, as later entries are added.
+     *
+     * @return the number of entries paged in
+     * @throws IOException if the log cannot be read
+     */
+    public int showEarlier() throws IOException {
+        if (!hasEarlier()) {
+            return 0;
+        }
+        // entries are only dropped once recorded, so everything before the window is in the log
+        int first = window.get(0).number;
+        int from = Math.max(0, first - PAGE_ENTRIES);
+        List<TranscriptEntry> page = new ArrayList<>(first - from);
+        for (int number = from; number < first; number++) {
+            TranscriptEntry entry = new TranscriptEntry(number, log.isFromUser(number));
+            entry.text = log.read(number, 0, PREVIEW_BYTES);
+            entry.shownBytes = utf8Length(entry.text);
+            entry.totalBytes = log.byteLength(number);
+            page.add(entry);
+        }
+        window.addAll(0, page);
+        return page.size();
+    }
+
+    /**
+     * Shows the next part of a truncated entry.
+     *
+     * @param entry the entry
+     * @throws IOException if the log cannot be read
+     */
+    public void showMore(TranscriptEntry entry) throws IOException {
+        if (!entry.isTruncated() || entry.number >= log.size()) {
+            return;
+        }
+        String more = log.read(entry.number, entry.shownBytes, PREVIEW_BYTES);
+        entry.text += more;
+        entry.shownBytes += utf8Length(more);
+        refresh(entry);
+    }
+
+    /**
+     * Closes and deletes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Sets the text shown for an entry: all of it if it is short, and otherwise
+     * the lines that fit in {@link #PREVIEW_BYTES}.
+     */
+    private static void show(TranscriptEntry entry, String text) {
+        long bytes = 0;
+        int cut = -1;
+        long cutBytes = 0;
+        int lineEnd = 0;
+        long lineEndBytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int length = utf8Length(text.charAt(i));
+            if (cut < 0 && bytes + length > PREVIEW_BYTES) {
+                boolean splitsPair = Character.isLowSurrogate(text.charAt(i));
+                cut = lineEnd > 0 ? lineEnd : splitsPair ? i - 1 : i;
+                cutBytes = lineEnd > 0 ? lineEndBytes : splitsPair ? bytes - 2 : bytes;
+            }
+            bytes += length;
+            if (cut < 0 && text.charAt(i) == '\n') {
+                lineEnd = i + 1;
+                lineEndBytes = bytes;
+            }
+        }
+        entry.text = cut < 0 ? text : text.substring(0, cut);
+        entry.shownBytes = cut < 0 ? bytes : cutBytes;
+        entry.totalBytes = bytes;
+    }
+
+    /**
+     * Tells the window that an entry changed, so a list view showing it redraws it.
+     */
+    private void refresh(TranscriptEntry entry) {
+        int index = window.lastIndexOf(entry); // changed entries are usually near the end
+        if (index >= 0) {
+            window.set(index, entry);
+        }
+    }
+
+    /**
+     * Drops the oldest entries while the window is over capacity, stopping at
+     * the first one not yet recorded.
+     */
+    private void trim() {
+        int recorded = log.size();
+        int drop = 0;
+        while (window.size() - drop > capacity && window.get(drop).number < recorded) {
+            drop++;
+        }
+        if (drop > 0) {
+            window.subList(0, drop).clear();
+        }
+    }
+
+    static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            bytes += utf8Length(text.charAt(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the UTF-8 length of a character, counting each half of a surrogate
+     * pair as two bytes of the pair's four.
+     */
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        return c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    }
+}
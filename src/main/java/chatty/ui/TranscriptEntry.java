@@ -0,0 +1,59 @@
+package chatty.ui;
+
+/**
+ * One message in the chat transcript, said by the user or by Chatty.
+ *
+ * <p>An entry holds only the text currently shown, which for a long reply is
+ * its first part; the rest stays in the {@link Transcript}'s log until it is
+ * asked for. Entries are changed only through their {@code Transcript}, on the
+ * thread that owns it.</p>
+ */
+public final class TranscriptEntry {
+    final int number;
+    private final boolean isUser;
+    String text;
+    /** The length of {@link #text} in UTF-8 bytes. */
+    long shownBytes;
+    /** The length of the whole entry in UTF-8 bytes. */
+    long totalBytes;
+    Runnable onCancel;
+    boolean isPending;
+
+    TranscriptEntry(int number, boolean isUser) {
+        this.number = number;
+        this.isUser = isUser;
+    }
+
+    public boolean isFromUser() {
+        return isUser;
+    }
+
+    /**
+     * Returns the text shown for this entry, which is empty while a reply is pending.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns whether this is a reply that is still being worked out.
+     */
+    public boolean isPending() {
+        return isPending;
+    }
+
+    /**
+     * Returns what cancels the command this pending reply is for, or
+     * {@code null} if it cannot be cancelled.
+     */
+    public Runnable getOnCancel() {
+        return onCancel;
+    }
+
+    /**
+     * Returns whether part of the entry is not shown yet.
+     */
+    public boolean isTruncated() {
+        return shownBytes < totalBytes;
+    }
+}
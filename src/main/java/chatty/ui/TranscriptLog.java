@@ -0,0 +1,143 @@
+package chatty.ui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An append-only file holding the text of every transcript entry, numbered in
+ * the order they were appended.
+ *
+ * <p>The file holds only the UTF-8 text of the entries, back to back. Where each
+ * entry starts and who said it are kept in memory, at a {@code long} and a bit
+ * per entry, so any part of an entry is read back with one positional read.</p>
+ *
+ * <p>Appends and reads may come from different threads.</p>
+ */
+final class TranscriptLog implements Closeable {
+    private final Path file;
+    private final FileChannel channel;
+    /** The start of every entry, followed by the end of the last one. */
+    private long[] offsets = new long[64];
+    private final BitSet fromUser = new BitSet();
+    private int size;
+
+    TranscriptLog(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Appends an entry to the end of the log.
+     *
+     * @param isUser whether the user said it, rather than Chatty
+     * @param text   the text of the entry
+     * @return the number of the entry
+     * @throws IOException if the entry cannot be written
+     */
+    synchronized int append(boolean isUser, String text) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+        long start = offsets[size];
+        while (bytes.hasRemaining()) {
+            channel.write(bytes, start + bytes.position());
+        }
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[size + 1] = start + bytes.limit();
+        fromUser.set(size, isUser);
+        return size++;
+    }
+
+    /**
+     * Returns the number of entries in the log.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean isFromUser(int number) {
+        checkNumber(number);
+        return fromUser.get(number);
+    }
+
+    /**
+     * Returns the length of an entry in UTF-8 bytes.
+     */
+    synchronized long byteLength(int number) {
+        checkNumber(number);
+        return offsets[number + 1] - offsets[number];
+    }
+
+    /**
+     * Reads part of an entry, ending at a line end unless the entry ends first.
+     * A single line longer than {@code maxBytes} is cut between two characters.
+     *
+     * @param number   the number of the entry
+     * @param from     the byte of the entry to start at, which must start a character
+     * @param maxBytes the most bytes to read
+     * @return the text read, which is empty once {@code from} reaches the end of the entry
+     * @throws IOException if the log cannot be read
+     */
+    synchronized String read(int number, long from, int maxBytes) throws IOException {
+        checkNumber(number);
+        long start = offsets[number] + from;
+        long end = offsets[number + 1];
+        int length = (int) Math.min(maxBytes, end - start);
+        if (length <= 0) {
+            return "";
+        }
+        boolean cut = start + length < end;
+        // one byte past the cut shows whether it falls inside a character
+        ByteBuffer bytes = ByteBuffer.allocate(cut ? length + 1 : length);
+        while (bytes.hasRemaining() && channel.read(bytes, start + bytes.position()) >= 0) {
+            // keep reading until the buffer is full
+        }
+        if (cut) {
+            length = cutPoint(bytes.array(), length);
+        }
+        return new String(bytes.array(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes the log file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Returns how many of the first {@code length} bytes to keep: up to the last
+     * newline if there is one, and otherwise up to the last character boundary.
+     * A newline byte never occurs inside a multi-byte UTF-8 character, so
+     * neither cut splits one.
+     */
+    private static int cutPoint(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        int cut = length;
+        while (cut > 0 && (bytes[cut] & 0xC0) == 0x80) {
+            cut--; // bytes[cut] continues the character before it
+        }
+        return cut;
+    }
+
+    private void checkNumber(int number) {
+        if (number < 0 || number >= size) {
+            throw new IndexOutOfBoundsException("No transcript entry " + number);
+        }
+    }
+}
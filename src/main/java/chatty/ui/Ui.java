@@ -3,11 +3,42 @@ package chatty.ui;
 import chatty.task.Task;
 import chatty.task.TaskList;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Renders Chatty's replies.
+ *
+ * <p>Replies that list tasks can be written straight into any {@link Appendable},
+ * such as a {@code Writer} on standard output, so a long list is streamed rather
+ * than built up as one large {@code String}. The {@code String}-returning methods
+ * render into a single {@link StringBuilder}.</p>
+ */
 public class Ui {
+    private static final String NEWLINE = System.lineSeparator();
+    private static final String INDEX_SEPARATOR = ". ";
+    private static final String ID_PREFIX = " (ID #";
+
+    /**
+     * A reply that is written into an {@link Appendable}.
+     */
+    @FunctionalInterface
+    private interface Reply {
+        void writeTo(Appendable out) throws IOException;
+    }
+
+    private static String render(Reply reply) {
+        StringBuilder output = new StringBuilder();
+        try {
+            reply.writeTo(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return output.toString();
+    }
+
     public static String printWelcomeMessage() {
         return "Hello! I'm Chatty! " + String.format("What can I do for you?%n%n");
     }
@@ -18,14 +49,70 @@ public class Ui {
      * @return A numbered list of tasks as a {@code String}.
      */
     public static String listTasks(TaskList tasks) {
+        return render(out -> writeTasks(tasks, out));
+    }
+
+    /**
+     * Writes a numbered line with its ID for every task in the list, followed by a blank line.
+     *
+     * <p>Runs in time linear in the number of tasks and allocates nothing per task
+     * beyond what {@code Task.toString()} and the sink allocate.</p>
+     *
+     * @param tasks The tasks to write.
+     * @param out   The sink to write into.
+     * @throws IOException If the sink cannot be written to.
+     */
+    public static void writeTasks(TaskList tasks, Appendable out) throws IOException {
         int i = 1;
-        String list = "";
         for (Task task : tasks) {
-            list += String.format("%d. %s%n", i, task.toString());
+            writeListedTaskLine(i, task, out);
             i++;
         }
-        list += String.format("%n");
-        return list;
+        out.append(NEWLINE);
+    }
+
+    /**
+     * Writes one numbered task line, for example {@code "1. [T][ ] read book"}.
+     *
+     * @param number The number shown before the task.
+     * @param task   The task to write.
+     * @param out    The sink to write into.
+     * @throws IOException If the sink cannot be written to.
+     */
+    public static void writeTaskLine(int number, Task task, Appendable out) throws IOException {
+        appendNumber(number, out);
+        out.append(INDEX_SEPARATOR).append(task.toString()).append(NEWLINE);
+    }
+
+    /**
+     * Writes one numbered task line followed by the task's ID, for example
+     * {@code "1. [T][ ] read book (ID #7)"}, so that a listed task can still be
+     * addressed by its ID after the tasks before it are deleted.
+     *
+     * @param number The number shown before the task.
+     * @param task   The task to write.
+     * @param out    The sink to write into.
+     * @throws IOException If the sink cannot be written to.
+     */
+    public static void writeListedTaskLine(int number, Task task, Appendable out) throws IOException {
+        appendNumber(number, out);
+        out.append(INDEX_SEPARATOR).append(task.toString()).append(ID_PREFIX);
+        appendNumber(task.getId(), out);
+        out.append(')').append(NEWLINE);
+    }
+
+    /**
+     * Appends the decimal digits of a non-negative number without creating a {@code String}.
+     */
+    private static void appendNumber(int number, Appendable out) throws IOException {
+        assert number >= 0 : "Task numbers should not be negative";
+        int divisor = 1;
+        while (number / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + number / divisor % 10));
+        }
     }
 
     /**
@@ -34,9 +121,10 @@ public class Ui {
      * @return A numbered list of tasks as a {@code String}.
      */
     public static String markTaskMessage(TaskList markedTasks) {
-        String output = String.format("Nice! I've marked these tasks as done:%n");
-        output += listTasks(markedTasks);
-        return output;
+        return render(out -> {
+            out.append("Nice! I've marked these tasks as done:").append(NEWLINE);
+            writeTasks(markedTasks, out);
+        });
     }
 
     /**
@@ -45,9 +133,10 @@ public class Ui {
      * @return A numbered list of tasks as a {@code String}.
      */
     public static String unmarkTaskMessage(TaskList unmarkedTasks) {
-        String output = String.format("OK, I've marked these tasks as not done yet:%n");
-        output += listTasks(unmarkedTasks);
-        return output;
+        return render(out -> {
+            out.append("OK, I've marked these tasks as not done yet:").append(NEWLINE);
+            writeTasks(unmarkedTasks, out);
+        });
     }
 
     /**
@@ -56,38 +145,168 @@ public class Ui {
      * @return A numbered list of tasks as a {@code String}.
      */
     public static String deleteTaskMessage(TaskList tasks, TaskList deletedTasks) {
-        String output = String.format("Noted. I've removed these tasks:%n");
-        output += listTasks(deletedTasks) + String.format("Now you have %d task(s) left in the list.%n%n", tasks.size());
-        return output;
+        return render(out -> {
+            out.append("Noted. I've removed these tasks:").append(NEWLINE);
+            writeTasks(deletedTasks, out);
+            out.append(String.format("Now you have %d task(s) left in the list.%n%n", tasks.size()));
+        });
+    }
+
+    public static String noCompletedTasksMessage() {
+        return String.format("There are no completed tasks to delete!%n%n");
+    }
+
+    public static String noSelectedTasksMessage() {
+        return String.format("No tasks match that selection!%n%n");
+    }
+
+    public static String cancelledMessage() {
+        return String.format("OK, I've stopped that command.%n%n");
     }
 
     public static String loadErrorMessage(String e) {
         return String.format("Something went wrong: %s%n", e);
     }
 
+    /**
+     * Returns the reply to a command that failed with an unexpected exception.
+     *
+     * @param e The exception the command failed with.
+     * @return The reply.
+     */
+    public static String unexpectedErrorMessage(RuntimeException e) {
+        return String.format("Something went wrong: %s%n%n", e);
+    }
+
     public static String listTaskMessage(TaskList tasks) {
-        return tasks.isEmpty()
-                ? String.format("There are no tasks in your list!%n")
-                : String.format("Here are the tasks in your list:%n") + listTasks(tasks);
+        return render(out -> writeListTaskMessage(tasks, out));
+    }
+
+    /**
+     * Writes the reply to the {@code list} command.
+     *
+     * @param tasks The whole task list.
+     * @param out   The sink to write into.
+     * @throws IOException If the sink cannot be written to.
+     */
+    public static void writeListTaskMessage(TaskList tasks, Appendable out) throws IOException {
+        if (tasks.isEmpty()) {
+            out.append("There are no tasks in your list!").append(NEWLINE);
+            return;
+        }
+        out.append("Here are the tasks in your list:").append(NEWLINE);
+        writeTasks(tasks, out);
+    }
+
+    /**
+     * Writes one page of the task list, numbering the tasks by their positions in
+     * the whole list.
+     *
+     * @param page  The tasks on the page, in list order.
+     * @param from  The position of the first task on the page in the whole list.
+     * @param total The number of tasks in the whole list.
+     * @param out   The sink to write into.
+     * @throws IOException If the sink cannot be written to.
+     */
+    public static void writeListPageMessage(List<Task> page, int from, int total, Appendable out)
+            throws IOException {
+        int to = from + page.size();
+        assert 0 <= from && to <= total : "Page should be within the list";
+        if (total == 0) {
+            out.append("There are no tasks in your list!").append(NEWLINE);
+            return;
+        }
+        if (page.isEmpty()) {
+            out.append("There are no more tasks in your list!").append(NEWLINE);
+            return;
+        }
+        out.append("Here are tasks ");
+        appendNumber(from + 1, out);
+        out.append('-');
+        appendNumber(to, out);
+        out.append(" of ");
+        appendNumber(total, out);
+        out.append(" in your list:").append(NEWLINE);
+        for (int i = 0; i < page.size(); i++) {
+            writeListedTaskLine(from + i + 1, page.get(i), out);
+        }
+        out.append(NEWLINE);
+        if (to < total) {
+            out.append("Type \"list next\" for more.").append(NEWLINE);
+        }
     }
 
     public static String dueTasksMessage(LocalDate dateToFind, TaskList tasks) {
-        return tasks.isEmpty()
-                ? String.format("There are no tasks relevant to this date!%n%n")
-                : String.format("Here are the tasks relevant to %s%n",
-                dateToFind.format(DateTimeFormatter.ofPattern("MMM dd yyyy")))
-                + listTasks(tasks);
+        return render(out -> writeDueTasksMessage(dateToFind, tasks, out));
+    }
+
+    /**
+     * Writes the reply to the {@code due <date>} command.
+     *
+     * @param dateToFind The date searched for.
+     * @param tasks      The tasks relevant to the date.
+     * @param out        The sink to write into.
+     * @throws IOException If the sink cannot be written to.
+     */
+    public static void writeDueTasksMessage(LocalDate dateToFind, TaskList tasks, Appendable out)
+            throws IOException {
+        if (tasks.isEmpty()) {
+            out.append("There are no tasks relevant to this date!").append(NEWLINE).append(NEWLINE);
+            return;
+        }
+        out.append("Here are the tasks relevant to ").append(dateToFind.format(Task.DATE_FORMAT)).append(NEWLINE);
+        writeTasks(tasks, out);
+    }
+
+    public static String dueTasksBetweenMessage(LocalDate from, LocalDate to, TaskList tasks) {
+        return render(out -> writeDueTasksBetweenMessage(from, to, tasks, out));
+    }
+
+    /**
+     * Writes the reply to the {@code due <from> <to>} command.
+     *
+     * @param from  The first date of the range.
+     * @param to    The last date of the range.
+     * @param tasks The tasks relevant to the range.
+     * @param out   The sink to write into.
+     * @throws IOException If the sink cannot be written to.
+     */
+    public static void writeDueTasksBetweenMessage(LocalDate from, LocalDate to, TaskList tasks, Appendable out)
+            throws IOException {
+        if (tasks.isEmpty()) {
+            out.append("There are no tasks relevant to these dates!").append(NEWLINE).append(NEWLINE);
+            return;
+        }
+        out.append("Here are the tasks relevant to ").append(from.format(Task.DATE_FORMAT))
+                .append(" - ").append(to.format(Task.DATE_FORMAT)).append(NEWLINE);
+        writeTasks(tasks, out);
     }
 
     public static String matchingTasksMessage(TaskList tasks) {
-        return tasks.isEmpty() ?
-                String.format("There are no tasks in your list that match this description.%n%n")
-                : String.format("Here are the matching tasks in your list:%n") + listTasks(tasks);
+        return render(out -> writeMatchingTasksMessage(tasks, out));
+    }
+
+    /**
+     * Writes the reply to the {@code find} command.
+     *
+     * @param tasks The matching tasks.
+     * @param out   The sink to write into.
+     * @throws IOException If the sink cannot be written to.
+     */
+    public static void writeMatchingTasksMessage(TaskList tasks, Appendable out) throws IOException {
+        if (tasks.isEmpty()) {
+            out.append("There are no tasks in your list that match this description.")
+                    .append(NEWLINE).append(NEWLINE);
+            return;
+        }
+        out.append("Here are the matching tasks in your list:").append(NEWLINE);
+        writeTasks(tasks, out);
     }
 
     public static String addTaskMessage(Task task, TaskList taskList) {
         return String.format("Got it. I've added this task:%n")
-                + String.format("%s%n",task.toString())
+                + String.format("%s%n", task.toString())
+                + String.format("Its ID is #%d.%n", task.getId())
                 + String.format("Now you have %d task(s) in the list.%n%n", taskList.size());
     }
 
@@ -0,0 +1,247 @@
+package chatty;
+
+import chatty.parser.ListCursor;
+import chatty.storage.Storage;
+import chatty.task.Task;
+import chatty.task.TaskList;
+import chatty.task.Todo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChattyTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    @BeforeEach
+    public void setUp() {
+        Storage.setDataDirectory(dataDirectory);
+        Storage.setFormat(Storage.Format.BINARY);
+    }
+
+    /* =========================
+       executeBatch()
+       ========================= */
+
+    @Test
+    public void executeBatch_mixedCommands_returnsReplyPerCommand() throws IOException, ChattyExceptions {
+        Chatty chatty = new Chatty();
+
+        BatchResult result = chatty.executeBatch(List.of("todo read book", "", "mark 1", "nonsense"));
+
+        assertEquals(3, result.getCommandCount());
+        assertTrue(result.getReplies().get(0).startsWith("Got it."));
+        assertTrue(result.getReplies().get(1).startsWith("Nice!"));
+        assertTrue(result.getReplies().get(2).startsWith("Sorry"));
+        assertTrue(result.getCommandsPerSecond() > 0);
+    }
+
+    @Test
+    public void executeBatch_manyCommands_savesOnceAtEnd() throws IOException, ChattyExceptions {
+        Chatty chatty = new Chatty();
+        ArrayList<String> lines = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            lines.add("todo task " + i);
+        }
+        lines.add("mark 1 2500");
+
+        chatty.executeBatch(lines);
+
+        // past the compaction threshold the batch is saved as a snapshot, not a journal
+        assertTrue(Files.exists(dataDirectory.resolve("chatty.bin.1")));
+        TaskList loaded = Storage.load();
+        assertEquals(2500, loaded.size());
+        assertTrue(loaded.get(0).isComplete());
+        assertTrue(loaded.get(2499).isComplete());
+        assertFalse(loaded.get(1).isComplete());
+    }
+
+    @Test
+    public void executeBatch_flushInterval_journalsEachFlush() throws IOException, ChattyExceptions {
+        Chatty chatty = new Chatty();
+
+        chatty.executeBatch(List.of("todo a", "todo b", "todo c"), 2);
+
+        assertEquals(3, Files.readAllLines(dataDirectory.resolve("chatty.journal.1")).size());
+        assertEquals(3, Storage.load().size());
+    }
+
+    /* =========================
+       delete
+       ========================= */
+
+    @Test
+    public void getResponse_deleteDone_deletesCompletedTasksAndJournalsThem() throws IOException, ChattyExceptions {
+        Chatty chatty = new Chatty();
+        chatty.executeBatch(List.of("todo a", "todo b", "todo c", "todo d", "mark 1 3 4"));
+
+        String reply = chatty.getResponse("delete done");
+        Storage.flush();
+
+        assertTrue(reply.contains("1 task(s) left"), reply);
+        TaskList loaded = Storage.load();
+        assertEquals(1, loaded.size());
+        assertEquals("b", loaded.get(0).getName());
+    }
+
+    @Test
+    public void getResponse_deleteDoneWithNothingDone_deletesNothing() throws IOException, ChattyExceptions {
+        Chatty chatty = new Chatty();
+        chatty.executeBatch(List.of("todo a"));
+
+        assertTrue(chatty.getResponse("delete done").startsWith("There are no completed tasks"));
+        assertEquals(1, Storage.load().size());
+    }
+
+    /* =========================
+       task IDs
+       ========================= */
+
+    @Test
+    public void getResponse_markById_marksTaskAfterDeletes() throws IOException, ChattyExceptions {
+        Chatty chatty = new Chatty();
+        chatty.executeBatch(List.of("todo a", "todo b", "todo c", "delete 1"));
+
+        chatty.getResponse("mark #3");
+        Storage.flush();
+
+        TaskList loaded = Storage.load();
+        assertTrue(loaded.get(1).isComplete());
+        assertEquals(3, loaded.get(1).getId());
+        assertTrue(chatty.getResponse("mark #1").startsWith("There is no task with ID #1!"));
+    }
+
+    /* =========================
+       list
+       ========================= */
+
+    @Test
+    public void getResponse_pagedListAfterWrite_readsOnlyThePage() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        int[] reads = new int[1];
+        TaskList taskList = new TaskList(new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                reads[0]++;
+                return tasks.get(index);
+            }
+
+            @Override
+            public Task set(int index, Task task) {
+                return tasks.set(index, task);
+            }
+
+            @Override
+            public int size() {
+                return tasks.size();
+            }
+        });
+        Chatty chatty = new Chatty(taskList);
+        chatty.getResponse("mark 1");
+        reads[0] = 0;
+
+        String page = chatty.getResponse("list 1 10");
+        String next = chatty.getResponse("list next");
+
+        assertTrue(page.contains("1. [T][X] task 0"), page);
+        assertTrue(next.contains("11. [T][ ] task 10"), next);
+        assertTrue(reads[0] <= 30, "read " + reads[0] + " tasks");
+    }
+
+    /* =========================
+       query cache
+       ========================= */
+
+    @Test
+    public void getResponse_repeatedQueries_answeredFromCacheUntilListChanges() throws IOException, ChattyExceptions {
+        Chatty chatty = new Chatty();
+        chatty.executeBatch(List.of("todo read book", "deadline return book /by 2026-03-01", "todo cook"));
+
+        String first = chatty.getResponse("find book");
+        assertEquals(first, chatty.getResponse("FIND   book"));
+        assertEquals(chatty.getResponse("due 2026-03-01"), chatty.getResponse("due 2026-03-01"));
+        chatty.getResponse("mark 1");
+        String afterMark = chatty.getResponse("find book");
+
+        assertNotEquals(first, afterMark);
+        assertTrue(afterMark.contains("[T][X] read book"), afterMark);
+        QueryCache.Stats stats = chatty.getQueryCacheStats();
+        assertEquals(2, stats.getHits());
+        assertEquals(3, stats.getMisses());
+        assertEquals(2, stats.getInvalidations());
+        assertEquals(0.4, stats.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void getResponse_cancelledQuery_throwsWithoutWritingReply() throws IOException, ChattyExceptions {
+        Chatty chatty = new Chatty();
+        chatty.executeBatch(List.of("todo read book", "deadline return book /by 2026-03-01"));
+        StringBuilder reply = new StringBuilder();
+
+        assertThrows(InterruptedIOException.class,
+                () -> chatty.getResponse("find book", reply, new ListCursor(), () -> true));
+        assertThrows(InterruptedIOException.class,
+                () -> chatty.getResponse("due 2026-03-01", reply, new ListCursor(), () -> true));
+
+        assertEquals("", reply.toString());
+        assertTrue(chatty.getResponse("find book").contains("2. [D][ ] return book"));
+    }
+
+    /* =========================
+       concurrency
+       ========================= */
+
+    @Test
+    public void getResponse_manyThreads_appliesEveryCommandAndSeesOwnChanges() throws Exception {
+        Chatty chatty = new Chatty();
+        int threads = 8;
+        int tasksPerThread = 100;
+        Pattern idPattern = Pattern.compile("Its ID is #(\\d+)\\.");
+
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "client" + t + "-";
+            results.add(clients.submit(() -> {
+                for (int i = 0; i < tasksPerThread; i++) {
+                    Matcher id = idPattern.matcher(chatty.getResponse("todo " + prefix + i));
+                    assertTrue(id.find());
+                    assertTrue(chatty.getResponse("find " + prefix + i).contains(prefix + i));
+                    assertTrue(chatty.getResponse("mark #" + id.group(1)).startsWith("Nice!"));
+                    if (i % 10 == 0) {
+                        assertTrue(chatty.getResponse("list").contains("[T][X] " + prefix + i));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        clients.shutdown();
+        Storage.flush();
+
+        TaskList loaded = Storage.load();
+        assertEquals(threads * tasksPerThread, loaded.size());
+        assertEquals(threads * tasksPerThread, loaded.positionsMatching(Task::isComplete).cardinality());
+    }
+}
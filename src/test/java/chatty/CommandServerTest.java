@@ -0,0 +1,159 @@
+package chatty;
+
+import chatty.storage.Storage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandServerTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private CommandServer server;
+
+    @BeforeEach
+    public void setUp() {
+        Storage.setDataDirectory(dataDirectory);
+        Storage.setFormat(Storage.Format.BINARY);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /** One connection to the server, sending commands and reading their replies. */
+    private static final class Client implements AutoCloseable {
+        private final SocketChannel channel;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Client(SocketAddress address) throws IOException {
+            channel = SocketChannel.open(address);
+            in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        }
+
+        String send(String command) throws IOException {
+            out.write(command + "\n");
+            out.flush();
+            StringBuilder reply = new StringBuilder();
+            String line;
+            while (!(line = in.readLine()).equals(CommandServer.END_OF_REPLY)) {
+                reply.append(line).append('\n');
+            }
+            return reply.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private SocketAddress startServer(SocketAddress address) throws IOException, ChattyExceptions {
+        server = new CommandServer(new Chatty(), address).start();
+        return server.getAddress();
+    }
+
+    /* =========================
+       protocol
+       ========================= */
+
+    @Test
+    public void writeReply_lineStartingWithDot_isDotStuffed() throws IOException {
+        StringWriter out = new StringWriter();
+
+        CommandServer.writeReply(String.format("first%n.hidden%n%n"), out);
+
+        assertEquals("first\n..hidden\n\n.\n", out.toString());
+    }
+
+    @Test
+    public void send_overUnixSocket_repliesLikeGetResponse() throws IOException, ChattyExceptions {
+        SocketAddress address = startServer(UnixDomainSocketAddress.of(dataDirectory.resolve("chatty.sock")));
+
+        try (Client client = new Client(address)) {
+            assertTrue(client.send("todo read book").startsWith("Got it. I've added this task:\n"));
+            assertEquals("Please type a command!\n", client.send(" "));
+            assertTrue(client.send("list").contains("1. [T][ ] read book"));
+        }
+    }
+
+    /* =========================
+       load
+       ========================= */
+
+    @Test
+    public void send_manyIdleAndBusyClients_answersEveryCommand() throws Exception {
+        SocketAddress address = startServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        int idleClients = 1000;
+        int busyClients = 8;
+        int commandsPerClient = 50;
+
+        List<Client> idle = new ArrayList<>();
+        ExecutorService load = Executors.newFixedThreadPool(busyClients);
+        try {
+            for (int i = 0; i < idleClients; i++) {
+                idle.add(new Client(address));
+            }
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int c = 0; c < busyClients; c++) {
+                int clientNumber = c;
+                results.add(load.submit(() -> {
+                    int added = 0;
+                    try (Client client = new Client(address)) {
+                        for (int i = 0; i < commandsPerClient; i++) {
+                            if (client.send("todo task " + clientNumber + "-" + i).startsWith("Got it.")) {
+                                added++;
+                            }
+                            if (i % 10 == 0) {
+                                // a malformed command gets a reply and leaves the connection open
+                                assertTrue(client.send("deadline x /by").startsWith("Something went wrong"));
+                            }
+                        }
+                    }
+                    return added;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(commandsPerClient, result.get());
+            }
+
+            // every idle connection is still being served
+            String reply = idle.get(idleClients - 1).send("find task 7-49");
+            assertTrue(reply.contains("[T][ ] task 7-49"), reply);
+            assertTrue(idle.get(0).send("delete 1").contains(
+                    "Now you have " + (busyClients * commandsPerClient - 1) + " task(s) left"));
+        } finally {
+            load.shutdownNow();
+            for (Client client : idle) {
+                client.close();
+            }
+        }
+    }
+}
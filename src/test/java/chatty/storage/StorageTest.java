@@ -0,0 +1,690 @@
+package chatty.storage;
+
+import chatty.ChattyExceptions;
+import chatty.task.Deadline;
+import chatty.task.Event;
+import chatty.task.Task;
+import chatty.task.TaskList;
+import chatty.task.Todo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Storage.setDataDirectory(dataDirectory);
+        Storage.setFormat(Storage.Format.BINARY);
+        Storage.setDurability(Storage.Durability.ASYNC);
+    }
+
+    private static void assertSameTasks(TaskList expected, TaskList actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    /**
+     * Returns the records of a journal segment without their length and checksum.
+     */
+    private static List<String> journalRecords(Path segment) throws IOException {
+        List<String> records = new ArrayList<>();
+        for (String line : Files.readAllLines(segment)) {
+            records.add(line.substring(line.indexOf(' ', line.indexOf(' ') + 1) + 1));
+        }
+        return records;
+    }
+
+    /* =========================
+       journal replay
+       ========================= */
+
+    @Test
+    public void load_afterJournaledMutations_replaysJournal() throws IOException, ChattyExceptions {
+        TaskList tasks = Storage.load();
+
+        Todo todo = new Todo("read book");
+        tasks.add(todo);
+        Storage.recordAdd(tasks, todo);
+        Deadline deadline = new Deadline("submit report", LocalDate.of(2026, 3, 1));
+        tasks.add(deadline);
+        Storage.recordAdd(tasks, deadline);
+        Todo other = new Todo("write code");
+        tasks.add(other);
+        Storage.recordAdd(tasks, other);
+
+        tasks.markTask(List.of(1));
+        Storage.recordMark(tasks, List.of(1));
+        ArrayList<Integer> toDelete = new ArrayList<>(List.of(0));
+        tasks.deleteTask(toDelete);
+        Storage.recordDelete(tasks, toDelete);
+
+        assertFalse(Files.exists(dataDirectory.resolve("chatty.bin.1")));
+        assertSameTasks(tasks, Storage.load());
+    }
+
+    @Test
+    public void load_legacySnapshotWithoutJournal_loadsTasks() throws IOException, ChattyExceptions {
+        Files.writeString(dataDirectory.resolve("chatty.txt"),
+                String.format("1. [T][X] read book%n2. [D][ ] submit report (by: Mar 01 2026)%n"));
+
+        TaskList tasks = Storage.load();
+
+        assertEquals(2, tasks.size());
+        assertTrue(tasks.get(0).isComplete());
+        assertEquals(LocalDate.of(2026, 3, 1), ((Deadline) tasks.get(1)).getDeadline());
+    }
+
+    /* =========================
+       snapshot formats
+       ========================= */
+
+    @Test
+    public void load_legacySnapshot_migratesToBinary() throws IOException, ChattyExceptions {
+        Files.writeString(dataDirectory.resolve("chatty.txt"),
+                String.format("1. [T][X] read book%n2. [E][ ] conference (from: Mar 01 2026 to: Mar 03 2026)%n"));
+        TaskList legacy = Storage.load();
+
+        assertFalse(Files.exists(dataDirectory.resolve("chatty.txt")));
+        assertTrue(Files.exists(dataDirectory.resolve("chatty.bin.1")));
+        assertSameTasks(legacy, Storage.load());
+    }
+
+    @Test
+    public void writeToFile_binary_roundTripsAllTaskTypes() throws IOException, ChattyExceptions {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read bök \uD83D\uDCDA"));
+        tasks.add(new Deadline("submit report ", LocalDate.of(2026, 3, 1)));
+        tasks.add(new Event("conference ", LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 3)));
+        tasks.get(2).setComplete();
+
+        Storage.writeToFile(tasks);
+
+        assertSameTasks(tasks, Storage.load());
+    }
+
+    @Test
+    public void writeToFile_textFormat_writesReadableLines() throws IOException, ChattyExceptions {
+        Storage.setFormat(Storage.Format.TEXT);
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        tasks.get(0).setComplete();
+
+        Storage.writeToFile(tasks);
+
+        assertTrue(Files.readString(dataDirectory.resolve("chatty.txt")).startsWith("1. [T][X] read book"));
+        assertSameTasks(tasks, Storage.load());
+    }
+
+    /* =========================
+       checksums
+       ========================= */
+
+    private static void corruptByte(Path file, int position) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[position] ^= 0x20;
+        Files.write(file, bytes);
+    }
+
+    @Test
+    public void load_textSnapshotChangedAfterSave_throwsIOException() throws IOException {
+        Storage.setFormat(Storage.Format.TEXT);
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        Storage.writeToFile(tasks);
+
+        corruptByte(dataDirectory.resolve("chatty.txt"), "1. [T][ ] r".length());
+
+        assertThrows(IOException.class, Storage::load);
+    }
+
+    @Test
+    public void load_binarySnapshotChangedAfterSave_throwsIOException() throws IOException {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        Storage.writeToFile(tasks);
+
+        Path snapshot = dataDirectory.resolve("chatty.bin.1");
+        corruptByte(snapshot, (int) Files.size(snapshot) - 12);
+
+        assertThrows(IOException.class, Storage::load);
+    }
+
+    @Test
+    public void writeToFile_whileSnapshotIsMapped_savesNewGeneration() throws IOException, ChattyExceptions {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        Storage.writeToFile(tasks);
+        TaskList mapped = Storage.load();
+
+        mapped.add(new Todo("write code"));
+        Storage.writeToFile(mapped);
+
+        assertTrue(Files.exists(dataDirectory.resolve("chatty.bin.2")));
+        assertEquals("[T][ ] read book", mapped.get(0).toString());
+        assertSameTasks(mapped, Storage.load());
+    }
+
+    @Test
+    public void load_unnumberedBinarySnapshot_isReplacedByNextGeneration() throws IOException, ChattyExceptions {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        Storage.writeToFile(tasks);
+        Files.move(dataDirectory.resolve("chatty.bin.1"), dataDirectory.resolve("chatty.bin"));
+
+        TaskList loaded = Storage.load();
+        Storage.writeToFile(loaded);
+
+        assertTrue(Files.exists(dataDirectory.resolve("chatty.bin.1")));
+        assertSameTasks(tasks, Storage.load());
+        assertFalse(Files.exists(dataDirectory.resolve("chatty.bin")));
+    }
+
+    @Test
+    public void writeToFile_leavesNoTemporaryFile() throws IOException {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        Storage.writeToFile(tasks);
+        Storage.setFormat(Storage.Format.TEXT);
+        Storage.writeToFile(tasks);
+
+        assertFalse(Files.exists(dataDirectory.resolve("chatty.bin.1.tmp")));
+        assertFalse(Files.exists(dataDirectory.resolve("chatty.txt.tmp")));
+    }
+
+    /* =========================
+       incremental text saves
+       ========================= */
+
+    /**
+     * Saves the tasks, then saves them again as a new list, which rewrites every
+     * line, and checks that both saves wrote the same task lines.
+     */
+    private void assertSameAsFullSave(TaskList tasks) throws IOException {
+        Storage.writeToFile(tasks);
+        List<String> saved = savedTaskLines();
+
+        TaskList copy = new TaskList();
+        for (Task task : tasks) {
+            copy.add(task);
+        }
+        Storage.writeToFile(copy);
+        assertEquals(savedTaskLines(), saved);
+
+        Storage.writeToFile(tasks); // the next save of tasks can reuse lines again
+    }
+
+    private List<String> savedTaskLines() throws IOException {
+        List<String> lines = Files.readAllLines(dataDirectory.resolve("chatty.txt"));
+        // every snapshot starts a new journal segment, so only the task lines can match
+        lines.removeIf(line -> line.startsWith("#"));
+        return lines;
+    }
+
+    @Test
+    public void writeToFile_textAfterMarksAddsAndDeletes_matchesFullSave() throws IOException, ChattyExceptions {
+        Storage.setFormat(Storage.Format.TEXT);
+        TaskList tasks = manyTasks(200);
+        assertSameAsFullSave(tasks);
+
+        tasks.markTask(List.of(5, 150));
+        assertSameAsFullSave(tasks);
+
+        tasks.add(new Todo("caf\u00e9 \uD83D\uDE00"));
+        tasks.unmarkTask(List.of(5));
+        assertSameAsFullSave(tasks);
+
+        tasks.deleteTask(new ArrayList<>(List.of(99)));
+        tasks.markTask(List.of(10));
+        assertSameAsFullSave(tasks);
+
+        TaskList loaded = Storage.load();
+        assertEquals(tasks.size(), loaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toString(), loaded.get(i).toString());
+        }
+    }
+
+    /* =========================
+       parallel text loading
+       ========================= */
+
+    @Test
+    public void read_parallelChunks_matchesSequentialLoad() throws IOException, ChattyExceptions {
+        Storage.setFormat(Storage.Format.TEXT);
+        TaskList tasks = manyTasks(5000);
+        tasks.add(new Todo("caf\u00e9 \uD83D\uDE00"));
+        tasks.markTask(List.of(7, 4999));
+        Storage.writeToFile(tasks);
+        Path file = dataDirectory.resolve("chatty.txt");
+
+        Snapshot parallel = ParallelTextReader.read(file, 4);
+        Storage.setLoadParallelism(1);
+        TaskList sequential = Storage.load();
+
+        assertSameTasks(sequential, parallel.tasks);
+        assertEquals(1, parallel.journalSegment);
+    }
+
+    @Test
+    public void read_crlfAndBlankLines_skipsBlankLines() throws IOException, ChattyExceptions {
+        Path file = dataDirectory.resolve("chatty.txt");
+        Files.writeString(file, "1. [T][ ] a\r\n\r\n2. [T][X] b\r\n#journal 3\r\n");
+
+        Snapshot snapshot = ParallelTextReader.read(file, 8);
+
+        assertEquals(2, snapshot.tasks.size());
+        assertEquals("[T][X] b", snapshot.tasks.get(1).toString());
+        assertEquals(3, snapshot.journalSegment);
+    }
+
+    @Test
+    public void read_twoMalformedLines_throwsFailureOfFirst() throws IOException {
+        Path file = dataDirectory.resolve("chatty.txt");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append(i == 100 ? "[D][ ] report (by: someday)" : i == 900 ? "#journal x" : "[T][ ] ok").append('\n');
+        }
+        Files.writeString(file, text);
+
+        assertThrows(ChattyExceptions.class, () -> ParallelTextReader.read(file, 4));
+    }
+
+    @Test
+    public void setLoadParallelism_zero_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> Storage.setLoadParallelism(0));
+    }
+
+    /* =========================
+       allocation benchmark
+       ========================= */
+
+    /**
+     * Returns the bytes allocated per task by a full save of unchanged tasks,
+     * or -1 if the JVM cannot measure allocation.
+     */
+    private static double bytesAllocatedPerTaskSaved(TaskList tasks) throws IOException {
+        return bytesAllocatedPerTask(tasks, () -> Storage.writeToFile(tasks));
+    }
+
+    /**
+     * Returns the bytes allocated per task of the list by an action, measured
+     * after a few warm-up runs, or -1 if the JVM cannot measure allocation.
+     */
+    private static double bytesAllocatedPerTask(TaskList tasks, IoAction action) throws IOException {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        for (int i = 0; i < 5; i++) {
+            action.run(); // warm up the JIT and the cached task strings
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        action.run();
+        return (double) (threads.getThreadAllocatedBytes(threadId) - before) / tasks.size();
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static TaskList manyTasks(int count) {
+        TaskList tasks = new TaskList();
+        for (int i = 0; i < count; i++) {
+            if (i % 3 == 0) {
+                tasks.add(new Todo("read book " + i));
+            } else if (i % 3 == 1) {
+                tasks.add(new Deadline("submit report " + i, LocalDate.of(2026, 3, 1).plusDays(i % 90)));
+            } else {
+                tasks.add(new Event("conference " + i, LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 3)));
+            }
+        }
+        return tasks;
+    }
+
+    @Test
+    public void writeToFile_textUnchangedTasks_allocatesNearZeroPerTask() throws IOException {
+        Storage.setFormat(Storage.Format.TEXT);
+        double bytesPerTask = bytesAllocatedPerTaskSaved(manyTasks(100_000));
+
+        assertTrue(bytesPerTask < 8, "Text save allocated " + bytesPerTask + " bytes per task");
+    }
+
+    @Test
+    public void writeToFile_binaryUnchangedTasks_allocatesNearZeroPerTask() throws IOException {
+        double bytesPerTask = bytesAllocatedPerTaskSaved(manyTasks(100_000));
+
+        // the only per-task allocation is the int offset table
+        assertTrue(bytesPerTask < 8, "Binary save allocated " + bytesPerTask + " bytes per task");
+    }
+
+    /* =========================
+       mapped snapshots
+       ========================= */
+
+    @Test
+    public void load_mappedSnapshot_keepsMarksAddsAndDeletes() throws IOException, ChattyExceptions {
+        TaskList saved = new TaskList();
+        saved.add(new Todo("a"));
+        saved.add(new Todo("b"));
+        saved.add(new Todo("c"));
+        Storage.writeToFile(saved);
+
+        TaskList tasks = Storage.load();
+        tasks.markTask(List.of(1));
+        tasks.add(new Todo("d"));
+        tasks.markTask(List.of(3));
+
+        assertTrue(tasks.get(1).isComplete());
+        assertTrue(tasks.get(3).isComplete());
+        assertEquals(4, tasks.size());
+
+        tasks.deleteTask(new ArrayList<>(List.of(0)));
+
+        assertEquals(3, tasks.size());
+        assertEquals("[T][X] b", tasks.get(0).toString());
+        assertEquals("[T][X] d", tasks.get(2).toString());
+    }
+
+    @Test
+    public void load_mappedSnapshot_deletesInRunsAndKeepsMarks() throws IOException, ChattyExceptions {
+        TaskList saved = new TaskList();
+        for (int i = 0; i < 10; i++) {
+            saved.add(new Todo("task " + i));
+        }
+        Storage.writeToFile(saved);
+        TaskList tasks = Storage.load();
+        tasks.markTask(List.of(4, 8));
+        tasks.add(new Todo("task 10"));
+        BitSet positions = new BitSet();
+        positions.set(0, 3);
+        positions.set(5);
+        positions.set(10);
+
+        tasks.deleteTasks(positions);
+        tasks.deleteTask(List.of(0));
+
+        assertEquals(5, tasks.size());
+        assertEquals("[T][X] task 4", tasks.get(0).toString());
+        assertEquals(7, tasks.get(1).getId());
+        assertEquals("[T][X] task 8", tasks.get(3).toString());
+        assertEquals("[T][ ] task 9", tasks.get(4).toString());
+    }
+
+    @Test
+    public void load_mappedSnapshot_snapshotCopiesNoTasks() throws IOException, ChattyExceptions {
+        Storage.writeToFile(manyTasks(100_000));
+        TaskList tasks = Storage.load();
+        tasks.markTask(List.of(1));
+        tasks.deleteTask(new ArrayList<>(List.of(2)));
+
+        TaskList snapshot = tasks.snapshot();
+        tasks.unmarkTask(List.of(1));
+        tasks.deleteTask(new ArrayList<>(List.of(1)));
+
+        assertEquals(99_999, snapshot.size());
+        assertTrue(snapshot.get(1).isComplete());
+        assertEquals(4, snapshot.get(2).getId());
+        assertEquals(99_998, tasks.size());
+        // the copy shares the mapping and copies only the int record table
+        double bytesPerTask = bytesAllocatedPerTask(tasks, tasks::snapshot);
+        assertTrue(bytesPerTask < 8, "Snapshot allocated " + bytesPerTask + " bytes per task");
+    }
+
+    @Test
+    public void load_version1Snapshot_readsEagerly() throws IOException, ChattyExceptions {
+        byte[] name = "read book".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        java.nio.ByteBuffer v1 = java.nio.ByteBuffer.allocate(18 + 1 + 4 + name.length);
+        v1.putInt(BinarySnapshot.MAGIC).putShort(BinarySnapshot.VERSION_WITHOUT_OFFSETS).putLong(0).putInt(1);
+        v1.put((byte) (BinarySnapshot.TYPE_TODO | BinarySnapshot.COMPLETE_BIT)).putInt(name.length).put(name);
+        Files.write(dataDirectory.resolve("chatty.bin"), v1.array());
+
+        TaskList tasks = Storage.load();
+
+        assertEquals(1, tasks.size());
+        assertEquals("[T][X] read book", tasks.get(0).toString());
+    }
+
+    @Test
+    public void load_corruptBinarySnapshot_throwsIOException() throws IOException {
+        Files.write(dataDirectory.resolve("chatty.bin"), new byte[] {1, 2, 3});
+
+        assertThrows(IOException.class, Storage::load);
+    }
+
+    @Test
+    public void load_truncatedLastRecord_ignoresRecord() throws IOException, ChattyExceptions {
+        Files.writeString(dataDirectory.resolve("chatty.journal.1"),
+                String.format("A [T][ ] read book%nM"));
+
+        TaskList tasks = Storage.load();
+
+        assertEquals(1, tasks.size());
+        assertFalse(tasks.get(0).isComplete());
+    }
+
+    @Test
+    public void load_tornRecordThenMoreAppends_keepsLaterRecords() throws IOException, ChattyExceptions {
+        TaskList tasks = new TaskList();
+        Todo first = new Todo("read book");
+        tasks.add(first);
+        Storage.recordAdd(tasks, first);
+        Storage.flush();
+        Path segment = dataDirectory.resolve("chatty.journal.1");
+        // a crash tore the second add after a prefix that still parses
+        Files.writeString(segment, "24 0badf00d A 2. [T][ ] wri", StandardOpenOption.APPEND);
+
+        tasks = Storage.load();
+        Todo added = new Todo("new task");
+        tasks.add(added);
+        Storage.recordAdd(tasks, added);
+        tasks.markTask(List.of(1));
+        Storage.recordMark(tasks, List.of(1));
+
+        TaskList reloaded = Storage.load();
+        assertEquals(2, reloaded.size());
+        assertEquals("[T][ ] read book", reloaded.get(0).toString());
+        assertEquals("[T][X] new task", reloaded.get(1).toString());
+        assertEquals(List.of("A 1. [T][ ] read book", "A 2. [T][ ] new task", "M 1"), journalRecords(segment));
+        assertTrue(Files.readString(dataDirectory.resolve("chatty.journal.1.corrupt")).contains("wri"));
+    }
+
+    @Test
+    public void load_corruptRecord_stopsReplayThere() throws IOException, ChattyExceptions {
+        TaskList tasks = new TaskList();
+        for (String name : new String[] {"read book", "write code"}) {
+            Todo todo = new Todo(name);
+            tasks.add(todo);
+            Storage.recordAdd(tasks, todo);
+        }
+        Storage.flush();
+        Path segment = dataDirectory.resolve("chatty.journal.1");
+        Files.writeString(segment, Files.readString(segment).replace("read book", "read bork"));
+
+        assertEquals(0, Storage.load().size());
+        assertTrue(Files.readString(segment).isEmpty());
+        assertTrue(Files.exists(dataDirectory.resolve("chatty.journal.1.corrupt")));
+    }
+
+    /* =========================
+       durability
+       ========================= */
+
+    @Test
+    public void recordMark_runOfPositions_isJournaledAsRange() throws IOException, ChattyExceptions {
+        TaskList tasks = manyTasks(10);
+        Storage.writeToFile(tasks);
+        BitSet positions = new BitSet();
+        positions.set(2, 8);
+        positions.set(9);
+
+        tasks.markTasks(positions);
+        Storage.recordMark(tasks, positions);
+        Storage.flush();
+
+        assertEquals(List.of("M 2-7 9"), journalRecords(dataDirectory.resolve("chatty.journal.2")));
+        assertEquals(positions, Storage.load().positionsMatching(Task::isComplete));
+    }
+
+    @Test
+    public void recordAdd_async_isWrittenByFlush() throws IOException {
+        TaskList tasks = new TaskList();
+        Todo todo = new Todo("read book");
+        tasks.add(todo);
+        Storage.recordAdd(tasks, todo);
+        Storage.flush();
+
+        assertEquals(List.of("A 1. [T][ ] read book"), journalRecords(dataDirectory.resolve("chatty.journal.1")));
+    }
+
+    @Test
+    public void recordAdd_groupCommit_isWrittenBeforeReturning() throws IOException {
+        Storage.setDurability(Storage.Durability.GROUP_COMMIT);
+        TaskList tasks = new TaskList();
+        for (int i = 0; i < 3; i++) {
+            Todo todo = new Todo("task " + i);
+            tasks.add(todo);
+            Storage.recordAdd(tasks, todo);
+
+            assertEquals(i + 1, Files.readAllLines(dataDirectory.resolve("chatty.journal.1")).size());
+        }
+    }
+
+    @Test
+    public void recordAdd_sync_isWrittenBeforeReturning() throws IOException {
+        Storage.setDurability(Storage.Durability.SYNC);
+        TaskList tasks = new TaskList();
+        Todo todo = new Todo("read book");
+        tasks.add(todo);
+        Storage.recordAdd(tasks, todo);
+
+        assertTrue(Files.exists(dataDirectory.resolve("chatty.journal.1")));
+    }
+
+    /* =========================
+       compaction
+       ========================= */
+
+    @Test
+    public void recordAdd_pastThreshold_compactsIntoSnapshot() throws IOException, ChattyExceptions {
+        Storage.setDurability(Storage.Durability.SYNC);
+        TaskList tasks = Storage.load();
+        for (int i = 0; i < Storage.COMPACTION_THRESHOLD + 1; i++) {
+            Todo todo = new Todo("task " + i);
+            tasks.add(todo);
+            Storage.recordAdd(tasks, todo);
+        }
+
+        assertFalse(Files.exists(dataDirectory.resolve("chatty.journal.1")));
+        assertTrue(Files.exists(dataDirectory.resolve("chatty.journal.2")));
+        assertSameTasks(tasks, Storage.load());
+    }
+
+    @Test
+    public void recordAdd_asyncPastThreshold_compactsInBackground() throws IOException, ChattyExceptions {
+        TaskList tasks = Storage.load();
+        synchronized (tasks) {
+            for (int i = 0; i < Storage.COMPACTION_THRESHOLD + 1; i++) {
+                Todo todo = new Todo("task " + i);
+                tasks.add(todo);
+                Storage.recordAdd(tasks, todo);
+            }
+        }
+        Storage.flush();
+
+        assertTrue(Files.exists(dataDirectory.resolve("chatty.bin.1")));
+        assertFalse(Files.exists(dataDirectory.resolve("chatty.journal.1")));
+        assertSameTasks(tasks, Storage.load());
+    }
+
+    @Test
+    public void load_segmentAlreadyInSnapshot_isNotReplayedTwice() throws IOException, ChattyExceptions {
+        Files.writeString(dataDirectory.resolve("chatty.txt"),
+                String.format("1. [T][ ] read book%n#journal 1%n"));
+        Files.writeString(dataDirectory.resolve("chatty.journal.1"),
+                String.format("A [T][ ] read book%n"));
+
+        TaskList tasks = Storage.load();
+
+        assertEquals(1, tasks.size());
+        assertFalse(Files.exists(dataDirectory.resolve("chatty.journal.1")));
+    }
+
+    /* =========================
+       task IDs
+       ========================= */
+
+    private static TaskList tasksWithGaps() {
+        TaskList tasks = new TaskList();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        tasks.deleteTask(List.of(1, 4));
+        return tasks;
+    }
+
+    private static void assertIds(TaskList tasks, int nextId, int... ids) {
+        assertEquals(ids.length, tasks.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], tasks.get(i).getId());
+        }
+        assertEquals(nextId, tasks.getNextId());
+    }
+
+    @Test
+    public void load_binarySnapshot_keepsIdsAndNextId() throws IOException, ChattyExceptions {
+        Storage.writeToFile(tasksWithGaps());
+
+        assertIds(Storage.load(), 6, 1, 3, 4);
+    }
+
+    @Test
+    public void load_textSnapshot_keepsIdsAndNextId() throws IOException, ChattyExceptions {
+        Storage.setFormat(Storage.Format.TEXT);
+        Storage.writeToFile(tasksWithGaps());
+
+        assertTrue(Files.readString(dataDirectory.resolve("chatty.txt")).startsWith(
+                String.format("1. [T][ ] task 0%n3. [T][ ] task 2%n")));
+        assertIds(Storage.load(), 6, 1, 3, 4);
+    }
+
+    @Test
+    public void load_journaledAdds_keepIds() throws IOException, ChattyExceptions {
+        TaskList tasks = tasksWithGaps();
+        Storage.writeToFile(tasks);
+        Todo todo = new Todo("task 5");
+        tasks.add(todo);
+        Storage.recordAdd(tasks, todo);
+
+        assertIds(Storage.load(), 7, 1, 3, 4, 6);
+    }
+
+    @Test
+    public void load_legacyTextSnapshot_numbersBecomeIds() throws IOException, ChattyExceptions {
+        Files.writeString(dataDirectory.resolve("chatty.txt"),
+                String.format("1. [T][ ] read book%n2. [T][ ] write code%n2. [T][ ] copied line%n"));
+        Files.writeString(dataDirectory.resolve("chatty.journal.1"),
+                String.format("A [T][ ] new task%n"));
+
+        assertIds(Storage.load(), 5, 1, 2, 3, 4);
+    }
+}
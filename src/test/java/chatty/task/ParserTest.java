@@ -2,11 +2,14 @@ package chatty.task;
 
 import chatty.Chatty;
 import chatty.ChattyExceptions;
+import chatty.parser.CommandLine;
+import chatty.parser.ListCursor;
 import chatty.parser.Parser;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,6 +43,22 @@ public class ParserTest {
                 Parser.parseCommand("   todo     read"));
     }
 
+    @Test
+    public void parseCommand_everyCommandName_returnsThatCommand() {
+        for (Chatty.Command command : Chatty.Command.values()) {
+            if (command != Chatty.Command.UNKNOWN) {
+                assertEquals(command, Parser.parseCommand(command.name().toLowerCase() + " 1"));
+            }
+        }
+    }
+
+    @Test
+    public void parseCommand_prefixOrExtensionOfCommand_returnsUNKNOWN() {
+        assertEquals(Chatty.Command.UNKNOWN, Parser.parseCommand("lis"));
+        assertEquals(Chatty.Command.UNKNOWN, Parser.parseCommand("listing"));
+        assertEquals(Chatty.Command.UNKNOWN, Parser.parseCommand("unknown"));
+    }
+
     /* =========================
        parseTaskIndex()
        ========================= */
@@ -71,6 +90,20 @@ public class ParserTest {
         assertTrue(indexes.contains(2));
     }
 
+    @Test
+    public void parseTaskIndex_extraWhitespace_returnsAll() throws ChattyExceptions {
+        TaskList list = new TaskList();
+        list.add(new Todo("a"));
+        list.add(new Todo("b"));
+
+        ArrayList<Integer> indexes =
+                Parser.parseTaskIndex("  mark\t1   2 ", list);
+
+        assertEquals(2, indexes.size());
+        assertEquals(0, indexes.get(0));
+        assertEquals(1, indexes.get(1));
+    }
+
     @Test
     public void parseTaskIndex_missingIndex_throwsException() {
         TaskList list = new TaskList();
@@ -98,6 +131,112 @@ public class ParserTest {
                 () -> Parser.parseTaskIndex("delete 3", list));
     }
 
+    /* =========================
+       parseTaskSelection()
+       ========================= */
+
+    private static TaskList tasks(int count) {
+        TaskList list = new TaskList();
+        for (int i = 0; i < count; i++) {
+            list.add(new Todo("task " + i));
+        }
+        return list;
+    }
+
+    @Test
+    public void parseTaskSelection_rangeAndNumbers_selectsUnion() throws ChattyExceptions {
+        BitSet selected = Parser.parseTaskSelection("mark 2-4 7 3", tasks(10));
+
+        assertEquals("{1, 2, 3, 6}", selected.toString());
+    }
+
+    @Test
+    public void parseTaskSelection_all_selectsEveryTask() throws ChattyExceptions {
+        assertEquals(50000, Parser.parseTaskSelection("mark ALL", tasks(50000)).cardinality());
+    }
+
+    @Test
+    public void parseTaskSelection_doneAndDue_selectsMatchingTasks() throws ChattyExceptions {
+        TaskList list = tasks(3);
+        list.add(new Deadline("report", LocalDate.of(2026, 3, 4)));
+        list.markTasks(Parser.parseTaskSelection("mark 1", list));
+
+        assertEquals("{0, 3}", Parser.parseTaskSelection("delete done due:2026-03-04", list).toString());
+    }
+
+    @Test
+    public void parseTaskSelection_invalidRanges_throwException() {
+        TaskList list = tasks(5);
+
+        assertThrows(ChattyExceptions.class, () -> Parser.parseTaskSelection("mark 4-2", list));
+        assertThrows(ChattyExceptions.class, () -> Parser.parseTaskSelection("mark 0-2", list));
+        assertThrows(ChattyExceptions.class, () -> Parser.parseTaskSelection("mark 3-6", list));
+        assertThrows(ChattyExceptions.class, () -> Parser.parseTaskSelection("mark 1-", list));
+        assertThrows(ChattyExceptions.class, () -> Parser.parseTaskSelection("mark due:2026-02-30x", list));
+    }
+
+    /* =========================
+       executeCommand() list pages
+       ========================= */
+
+    private static TaskList numberedTasks(int count) {
+        TaskList list = new TaskList();
+        for (int i = 0; i < count; i++) {
+            list.add(new Todo("task " + i));
+        }
+        return list;
+    }
+
+    private static String list(TaskList list, String input, ListCursor cursor) throws Exception {
+        StringBuilder reply = new StringBuilder();
+        Parser.executeCommand(Chatty.Command.LIST, list, CommandLine.of(input), cursor, reply);
+        return reply.toString();
+    }
+
+    @Test
+    public void list_pageAndSize_showsOnlyThatPage() throws Exception {
+        String[] lines = list(numberedTasks(10), "list 2 3", new ListCursor()).split(System.lineSeparator());
+
+        assertEquals("Here are tasks 4-6 of 10 in your list:", lines[0]);
+        assertEquals("4. [T][ ] task 3 (ID #4)", lines[1]);
+        assertEquals("6. [T][ ] task 5 (ID #6)", lines[3]);
+        assertEquals("Type \"list next\" for more.", lines[5]);
+    }
+
+    @Test
+    public void list_next_continuesAtSameTaskAfterDeletion() throws Exception {
+        TaskList tasks = numberedTasks(10);
+        ListCursor cursor = new ListCursor();
+        list(tasks, "list 1 3", cursor);
+        tasks.remove(0);
+
+        String[] lines = list(tasks, "list next", cursor).split(System.lineSeparator());
+
+        assertEquals("Here are tasks 3-5 of 9 in your list:", lines[0]);
+        assertEquals("3. [T][ ] task 3 (ID #4)", lines[1]);
+    }
+
+    @Test
+    public void list_cursorPageSize_pagesPlainListUntilTheEnd() throws Exception {
+        TaskList tasks = numberedTasks(5);
+        ListCursor cursor = new ListCursor();
+        cursor.setPageSize(4);
+
+        assertTrue(list(tasks, "list", cursor).startsWith("Here are tasks 1-4 of 5 in your list:"));
+        String last = list(tasks, "list next", cursor);
+        assertTrue(last.startsWith("Here are tasks 5-5 of 5 in your list:"));
+        assertFalse(last.contains("list next"));
+        assertTrue(list(tasks, "list next", cursor).startsWith("There are no more tasks in your list!"));
+    }
+
+    @Test
+    public void list_invalidPage_throwsException() {
+        TaskList tasks = numberedTasks(3);
+        assertThrows(ChattyExceptions.class, () -> list(tasks, "list 0", new ListCursor()));
+        assertThrows(ChattyExceptions.class, () -> list(tasks, "list two", new ListCursor()));
+        assertThrows(ChattyExceptions.class, () -> list(tasks, "list 1 0", new ListCursor()));
+    }
+
     /* =========================
        parseAddTaskCommand()
        ========================= */
@@ -143,6 +282,15 @@ public class ParserTest {
                 ));
     }
 
+    @Test
+    public void parseAddTaskCommand_deadline_dateBeyondIntEpochDay_throwsException() {
+        assertThrows(ChattyExceptions.class,
+                () -> Parser.parseAddTaskCommand(
+                        Chatty.Command.DEADLINE,
+                        "deadline submit report /by +999999999-12-31"
+                ));
+    }
+
     @Test
     public void parseAddTaskCommand_deadline_missingBy_throwsException() {
         assertThrows(ChattyExceptions.class,
@@ -209,6 +357,25 @@ public class ParserTest {
                 () -> Parser.parseDateToFind("due invalid-date"));
     }
 
+    @Test
+    public void parseDateToFind_impossibleDate_throwsException() {
+        assertThrows(ChattyExceptions.class,
+                () -> Parser.parseDateToFind("due 2026-02-30"));
+    }
+
+    @Test
+    public void parseDateRangeToFind_valid_returnsBothDates() throws ChattyExceptions {
+        LocalDate[] range = Parser.parseDateRangeToFind("due 2026-03-01 2026-03-05");
+        assertEquals(LocalDate.of(2026, 3, 1), range[0]);
+        assertEquals(LocalDate.of(2026, 3, 5), range[1]);
+    }
+
+    @Test
+    public void parseDateRangeToFind_endBeforeStart_throwsException() {
+        assertThrows(ChattyExceptions.class,
+                () -> Parser.parseDateRangeToFind("due 2026-03-05 2026-03-01"));
+    }
+
     /* =========================
        parseTaskFromFile()
        ========================= */
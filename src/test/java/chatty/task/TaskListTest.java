@@ -4,7 +4,15 @@ import chatty.ChattyExceptions;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,6 +83,52 @@ public class TaskListTest {
         assertEquals(2, result.size());
     }
 
+    @Test
+    public void find_substringOfWord_matchesLikeContains() {
+        TaskList list = new TaskList();
+        list.add(new Todo("buy notebook"));
+        list.add(new Todo("read"));
+        list.add(new Todo("bookmark page"));
+
+        TaskList result = list.find("book");
+
+        assertEquals(2, result.size());
+        assertEquals("buy notebook", result.get(0).getName());
+        assertEquals("bookmark page", result.get(1).getName());
+    }
+
+    @Test
+    public void find_multipleTerms_returnsTasksMatchingAllTerms() {
+        TaskList list = new TaskList();
+        list.add(new Todo("book flight to rome"));
+        list.add(new Todo("read book"));
+        list.add(new Todo("rome trip"));
+
+        TaskList result = list.find("rome book");
+
+        assertEquals(1, result.size());
+        assertEquals("book flight to rome", result.get(0).getName());
+    }
+
+    @Test
+    public void find_afterAddAndRemove_keepsIndexInListOrder() {
+        TaskList list = new TaskList();
+        list.add(new Todo("read book"));
+        list.add(new Todo("write code"));
+        list.find("book");
+
+        list.add(new Todo("book flight"));
+        list.remove(0);
+        list.add(new Todo("a book"));
+
+        TaskList result = list.find("book");
+
+        assertEquals(2, result.size());
+        assertEquals("book flight", result.get(0).getName());
+        assertEquals("a book", result.get(1).getName());
+        assertEquals(2, list.find("bo").size());
+    }
+
     @Test
     public void find_noMatch_returnsEmptyList() {
         TaskList list = new TaskList();
@@ -85,6 +139,17 @@ public class TaskListTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    public void find_cancelled_throwsAndLaterSearchBuildsIndex() {
+        TaskList list = new TaskList();
+        list.add(new Todo("read book"));
+        list.add(new Todo("return book"));
+
+        assertThrows(CancellationException.class, () -> list.find("book", () -> true));
+
+        assertEquals(2, list.find("book").size());
+    }
+
     /* =========================
        getTasksDueOn()
        ========================= */
@@ -122,6 +187,41 @@ public class TaskListTest {
         assertEquals(1, result.size());
     }
 
+    @Test
+    public void getTasksDueOn_afterRemove_keepsIndexInListOrder() throws ChattyExceptions {
+        TaskList list = new TaskList();
+        LocalDate date = LocalDate.of(2026, 3, 4);
+        list.add(new Event("late event", LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 10)));
+        list.add(new Deadline("early deadline", date));
+        list.add(new Todo("read"));
+        list.getTasksDueOn(date);
+
+        list.remove(0);
+        list.add(new Event("party", date, date));
+        list.add(new Deadline("other day", LocalDate.of(2026, 3, 5)));
+
+        TaskList result = list.getTasksDueOn(date);
+
+        assertEquals(2, result.size());
+        assertEquals("early deadline", result.get(0).getName());
+        assertEquals("party", result.get(1).getName());
+    }
+
+    @Test
+    public void getTasksDueBetween_range_returnsOverlappingTasks() throws ChattyExceptions {
+        TaskList list = new TaskList();
+        list.add(new Deadline("before", LocalDate.of(2026, 2, 28)));
+        list.add(new Event("spanning", LocalDate.of(2026, 2, 1), LocalDate.of(2026, 4, 1)));
+        list.add(new Deadline("inside", LocalDate.of(2026, 3, 3)));
+        list.add(new Event("after", LocalDate.of(2026, 3, 6), LocalDate.of(2026, 3, 8)));
+
+        TaskList result = list.getTasksDueBetween(LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 5));
+
+        assertEquals(2, result.size());
+        assertEquals("spanning", result.get(0).getName());
+        assertEquals("inside", result.get(1).getName());
+    }
+
     @Test
     public void getTasksDueOn_noMatchingTasks_returnsEmptyList() throws ChattyExceptions {
         TaskList list = new TaskList();
@@ -133,6 +233,17 @@ public class TaskListTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    public void getTasksDueBetween_cancelled_throwsAndLaterQueryBuildsIndex() throws ChattyExceptions {
+        TaskList list = new TaskList();
+        LocalDate date = LocalDate.of(2026, 3, 1);
+        list.add(new Deadline("submit", date));
+
+        assertThrows(CancellationException.class, () -> list.getTasksDueBetween(date, date, () -> true));
+
+        assertEquals(1, list.getTasksDueOn(date).size());
+    }
+
     /* =========================
        markTask()
        ========================= */
@@ -149,8 +260,9 @@ public class TaskListTest {
         TaskList marked = list.markTask(indexes);
 
         assertEquals(2, marked.size());
-        assertTrue(t1.isComplete());
-        assertTrue(t2.isComplete());
+        assertTrue(list.get(0).isComplete());
+        assertTrue(list.get(1).isComplete());
+        assertFalse(t1.isComplete()); // marked tasks are replaced, not changed
     }
 
     /* =========================
@@ -168,7 +280,7 @@ public class TaskListTest {
 
         list.unmarkTask(List.of(0));
 
-        assertFalse(t1.isComplete());
+        assertFalse(list.get(0).isComplete());
     }
 
     /* =========================
@@ -201,4 +313,292 @@ public class TaskListTest {
         assertEquals(1, list.size());
         assertEquals("b", list.get(0).getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deleteTask_duplicateIndexes_deletesEachTaskOnce() {
+        TaskList list = new TaskList();
+        list.add(new Todo("a"));
+        list.add(new Todo("b"));
+        list.add(new Todo("c"));
+
+        TaskList deleted = list.deleteTask(List.of(2, 0, 2));
+
+        assertEquals(2, deleted.size());
+        assertEquals("a", deleted.get(0).getName());
+        assertEquals("c", deleted.get(1).getName());
+        assertEquals(1, list.size());
+        assertEquals("b", list.get(0).getName());
+    }
+
+    @Test
+    public void deleteTasks_afterQueries_keepsIndexesInListOrder() throws ChattyExceptions {
+        TaskList list = new TaskList();
+        for (int i = 0; i < 10; i++) {
+            list.add(new Deadline("report " + i, LocalDate.of(2026, 3, 1)));
+        }
+        list.find("report");
+        list.getTasksDueOn(LocalDate.of(2026, 3, 1));
+
+        list.deleteTasks(list.positionsMatching(task -> task.getName().endsWith("1")
+                || task.getName().endsWith("4") || task.getName().endsWith("5")));
+
+        TaskList found = list.find("report");
+        TaskList due = list.getTasksDueOn(LocalDate.of(2026, 3, 1));
+        assertEquals(7, found.size());
+        assertEquals(7, due.size());
+        for (int i = 0; i < found.size(); i++) {
+            assertEquals(list.get(i).getName(), found.get(i).getName());
+            assertEquals(list.get(i).getName(), due.get(i).getName());
+        }
+    }
+
+    /* =========================
+       columnar()
+       ========================= */
+
+    private static void addMixedTasks(TaskList list) {
+        list.add(new Todo("read book"));
+        list.add(new Deadline("submit report", LocalDate.of(2026, 3, 1)));
+        list.add(new Event("conference", LocalDate.of(2026, 2, 27), LocalDate.of(2026, 3, 2)));
+        list.add(new Todo("read book"));
+    }
+
+    @Test
+    public void columnar_addedTasks_readBackEqual() {
+        TaskList objects = new TaskList();
+        TaskList columns = TaskList.columnar();
+        addMixedTasks(objects);
+        addMixedTasks(columns);
+
+        assertEquals(objects.size(), columns.size());
+        for (int i = 0; i < objects.size(); i++) {
+            assertEquals(objects.get(i).toString(), columns.get(i).toString());
+        }
+    }
+
+    @Test
+    public void columnar_markAndDelete_keepsCompletionAtShiftedPositions() {
+        TaskList list = TaskList.columnar();
+        addMixedTasks(list);
+
+        list.markTask(List.of(1, 3));
+        list.remove(0);
+        list.unmarkTask(List.of(0));
+
+        assertEquals("[D][ ] submit report(by: Mar 01 2026)", list.get(0).toString());
+        assertFalse(list.get(1).isComplete());
+        assertTrue(list.get(2).isComplete());
+    }
+
+    @Test
+    public void columnar_deleteTask_keepsRemainingTasks() {
+        TaskList list = TaskList.columnar();
+        addMixedTasks(list);
+        list.markTask(List.of(2, 3));
+
+        list.deleteTask(List.of(0, 2));
+
+        assertEquals(2, list.size());
+        assertEquals("[D][ ] submit report(by: Mar 01 2026)", list.get(0).toString());
+        assertEquals("[T][X] read book", list.get(1).toString());
+    }
+
+    @Test
+    public void columnar_deleteTasksInRuns_matchesObjectList() {
+        TaskList objects = new TaskList();
+        TaskList columns = TaskList.columnar();
+        for (int i = 0; i < 100; i++) {
+            objects.add(new Todo("task " + i));
+            columns.add(new Todo("task " + i));
+        }
+        BitSet odd = new BitSet();
+        for (int i = 1; i < 100; i += 2) {
+            odd.set(i);
+        }
+        objects.markTasks(odd);
+        columns.markTasks(odd);
+        BitSet deleted = new BitSet();
+        deleted.set(0, 5);
+        deleted.set(17);
+        deleted.set(40, 73);
+        deleted.set(99);
+
+        objects.deleteTasks(deleted);
+        columns.deleteTasks(deleted);
+
+        assertEquals(objects.size(), columns.size());
+        for (int i = 0; i < objects.size(); i++) {
+            assertEquals(objects.get(i).toString(), columns.get(i).toString());
+            assertEquals(objects.get(i).getId(), columns.get(i).getId());
+        }
+    }
+
+    @Test
+    public void columnar_getTasksDueOn_returnsTasksInListOrder() throws ChattyExceptions {
+        TaskList list = TaskList.columnar();
+        addMixedTasks(list);
+
+        TaskList due = list.getTasksDueOn(LocalDate.of(2026, 3, 1));
+
+        assertEquals(2, due.size());
+        assertEquals("submit report", due.get(0).getName());
+        assertEquals("conference", due.get(1).getName());
+    }
+
+    /* =========================
+       task IDs
+       ========================= */
+
+    @Test
+    public void positionOf_afterDeletes_findsShiftedTasks() {
+        TaskList list = new TaskList();
+        for (int i = 0; i < 100; i++) {
+            list.add(new Todo("task " + i));
+        }
+        int id = list.get(50).getId();
+        assertEquals(50, list.positionOf(id));
+
+        list.remove(0);
+        list.deleteTask(List.of(10, 20, 30));
+
+        assertEquals(46, list.positionOf(id));
+        assertEquals("task 50", list.get(46).getName());
+        assertEquals(-1, list.positionOf(1));
+    }
+
+    @Test
+    public void add_afterDelete_neverReusesIds() {
+        TaskList list = TaskList.columnar();
+        list.add(new Todo("a"));
+        list.add(new Todo("b"));
+        list.remove(1);
+
+        list.add(new Todo("c"));
+
+        assertEquals(1, list.get(0).getId());
+        assertEquals(3, list.get(1).getId());
+        assertEquals(1, list.positionOf(3));
+    }
+
+    /* =========================
+       ColumnarTasks name pool
+       ========================= */
+
+    @Test
+    public void removePositions_mostTasksDeleted_shrinksNamePool() {
+        ColumnarTasks tasks = new ColumnarTasks();
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        assertEquals(1000, tasks.pooledNames());
+
+        BitSet deleted = new BitSet();
+        deleted.set(0, 900);
+        tasks.removePositions(deleted);
+
+        assertEquals(100, tasks.pooledNames());
+        assertEquals("task 900", tasks.get(0).getName());
+        tasks.add(new Todo("task 950"));
+        assertEquals(100, tasks.pooledNames());
+    }
+
+    @Test
+    public void remove_oneAtATime_keepsPoolWithinTwiceTheTasks() {
+        ColumnarTasks tasks = new ColumnarTasks();
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+
+        while (tasks.size() > 10) {
+            tasks.remove(0);
+            assertTrue(tasks.pooledNames() <= Math.max(16, 2 * tasks.size()));
+        }
+        assertEquals("task 990", tasks.get(0).getName());
+    }
+
+    /* =========================
+       snapshot()
+       ========================= */
+
+    @Test
+    public void snapshot_afterMarksAndDeletes_isUnchanged() {
+        for (TaskList list : List.of(new TaskList(), TaskList.columnar())) {
+            addMixedTasks(list);
+            TaskList snapshot = list.snapshot();
+
+            list.markTask(List.of(0, 1));
+            list.deleteTask(List.of(2));
+            list.add(new Todo("new"));
+
+            assertEquals(4, snapshot.size());
+            assertEquals("[T][ ] read book", snapshot.get(0).toString());
+            assertEquals("[D][ ] submit report(by: Mar 01 2026)", snapshot.get(1).toString());
+            assertEquals("conference", snapshot.get(2).getName());
+            assertThrows(UnsupportedOperationException.class, () -> snapshot.add(new Todo("other")));
+        }
+    }
+
+    @Test
+    public void getModificationCount_everyChange_increasesAndSnapshotKeepsIt() {
+        TaskList list = new TaskList();
+        addMixedTasks(list);
+        long added = list.getModificationCount();
+        TaskList snapshot = list.snapshot();
+
+        list.markTask(List.of(0));
+        long marked = list.getModificationCount();
+        list.unmarkTask(List.of(0));
+        long unmarked = list.getModificationCount();
+        list.deleteTask(List.of(1));
+
+        assertTrue(added > 0);
+        assertTrue(marked > added);
+        assertTrue(unmarked > marked);
+        assertTrue(list.getModificationCount() > unmarked);
+        assertEquals(added, snapshot.getModificationCount());
+    }
+
+    @Test
+    public void snapshot_queriedByManyThreadsWhileListChanges_staysConsistent() throws Exception {
+        TaskList list = new TaskList();
+        AtomicReference<TaskList> published = new AtomicReference<>(list.snapshot());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        LocalDate date = LocalDate.of(2026, 3, 4);
+
+        ExecutorService readers = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int r = 0; r < 8; r++) {
+            results.add(readers.submit(() -> {
+                int queries = 0;
+                while (writing.get() || queries == 0) {
+                    TaskList snapshot = published.get();
+                    // every task is named "task", is due on the date and is marked on even IDs
+                    assertEquals(snapshot.size(), snapshot.find("task").size());
+                    assertEquals(snapshot.size(), snapshot.getTasksDueOn(date).size());
+                    for (Task task : snapshot) {
+                        assertEquals(task.getId() % 2 == 0, task.isComplete(), task.toString());
+                        assertEquals(task.getId(), snapshot.get(snapshot.positionOf(task.getId())).getId());
+                    }
+                    queries++;
+                }
+                return queries;
+            }));
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            list.add(new Deadline("task", date));
+            if (list.get(list.size() - 1).getId() % 2 == 0) {
+                list.markTask(List.of(list.size() - 1));
+            }
+            if (i % 7 == 6) {
+                list.deleteTask(List.of(i % list.size()));
+            }
+            published.set(list.snapshot());
+        }
+        writing.set(false);
+        readers.shutdown();
+        for (Future<Integer> result : results) {
+            assertTrue(result.get() > 0);
+        }
+    }
+}
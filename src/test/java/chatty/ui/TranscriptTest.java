@@ -0,0 +1,116 @@
+package chatty.ui;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranscriptTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<TranscriptEntry> window = new ArrayList<>();
+    private Transcript transcript;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (transcript != null) {
+            transcript.close();
+        }
+    }
+
+    private TranscriptEntry addAndRecord(boolean isUser, String text) throws IOException {
+        TranscriptEntry entry = transcript.add(isUser, text);
+        transcript.record(entry, text);
+        return entry;
+    }
+
+    /* =========================
+       window
+       ========================= */
+
+    @Test
+    public void add_overCapacity_dropsOldestAndShowsThemAgainOnRequest() throws IOException {
+        transcript = new Transcript(window, directory.resolve("transcript.log"), 10);
+        for (int i = 0; i < 25; i++) {
+            addAndRecord(i % 2 == 0, "message " + i);
+        }
+
+        assertEquals(10, window.size());
+        assertEquals("message 15", window.get(0).getText());
+        assertTrue(transcript.hasEarlier());
+
+        assertEquals(15, transcript.showEarlier());
+        assertEquals(25, window.size());
+        assertEquals("message 0", window.get(0).getText());
+        assertTrue(window.get(0).isFromUser());
+        assertFalse(window.get(1).isFromUser());
+        assertFalse(transcript.hasEarlier());
+    }
+
+    @Test
+    public void add_pendingReplyOverCapacity_keepsUnrecordedEntries() throws IOException {
+        transcript = new Transcript(window, directory.resolve("transcript.log"), 2);
+        addAndRecord(true, "list");
+        TranscriptEntry reply = transcript.addPending(null);
+        transcript.add(true, "todo read book");
+        transcript.add(false, "Got it.");
+
+        // the first entry is dropped, but nothing from the pending reply on has been recorded
+        assertEquals(3, window.size());
+        assertTrue(window.get(0).isPending());
+
+        transcript.record(reply, "Here are the tasks in your list:");
+        transcript.complete(reply, "Here are the tasks in your list:");
+
+        assertEquals(2, window.size());
+        assertEquals("todo read book", window.get(0).getText());
+    }
+
+    /* =========================
+       long replies
+       ========================= */
+
+    @Test
+    public void showMore_longReply_showsItAPartAtATime() throws IOException {
+        transcript = new Transcript(window, directory.resolve("transcript.log"), 10);
+        StringBuilder reply = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            reply.append(i).append(". [T][ ] tâche ").append(i).append('\n');
+        }
+        TranscriptEntry entry = addAndRecord(false, reply.toString());
+
+        assertTrue(entry.isTruncated());
+        assertTrue(Transcript.utf8Length(entry.getText()) <= Transcript.PREVIEW_BYTES);
+        assertTrue(entry.getText().endsWith("\n"));
+
+        int parts = 1;
+        while (entry.isTruncated()) {
+            transcript.showMore(entry);
+            parts++;
+        }
+        assertEquals(reply.toString(), entry.getText());
+        assertTrue(parts > 2);
+    }
+
+    @Test
+    public void showEarlier_longReply_pagesInOnlyItsPreview() throws IOException {
+        transcript = new Transcript(window, directory.resolve("transcript.log"), 1);
+        String reply = "x".repeat(3 * Transcript.PREVIEW_BYTES);
+        addAndRecord(false, reply);
+        addAndRecord(true, "bye");
+
+        transcript.showEarlier();
+
+        TranscriptEntry entry = window.get(0);
+        assertEquals(Transcript.PREVIEW_BYTES, entry.getText().length());
+        assertTrue(entry.isTruncated());
+    }
+}
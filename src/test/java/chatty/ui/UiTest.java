@@ -0,0 +1,53 @@
+package chatty.ui;
+
+import chatty.task.TaskList;
+import chatty.task.Todo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UiTest {
+
+    /* =========================
+       listTasks()
+       ========================= */
+
+    @Test
+    public void listTasks_multipleTasks_numbersEveryLineWithItsId() {
+        TaskList list = new TaskList();
+        for (int i = 0; i < 12; i++) {
+            list.add(new Todo("task " + i));
+        }
+
+        String[] lines = Ui.listTasks(list).split(System.lineSeparator());
+
+        assertEquals("1. [T][ ] task 0 (ID #1)", lines[0]);
+        assertEquals("10. [T][ ] task 9 (ID #10)", lines[9]);
+        assertEquals("12. [T][ ] task 11 (ID #12)", lines[11]);
+    }
+
+    /* =========================
+       writeListTaskMessage()
+       ========================= */
+
+    @Test
+    public void writeListTaskMessage_writer_matchesStringReply() throws IOException {
+        TaskList list = new TaskList();
+        list.add(new Todo("read book"));
+        list.add(new Todo("write code"));
+        StringWriter out = new StringWriter();
+
+        Ui.writeListTaskMessage(list, out);
+
+        assertEquals(Ui.listTaskMessage(list), out.toString());
+        assertTrue(out.toString().startsWith("Here are the tasks in your list:"));
+    }
+
+    @Test
+    public void listTaskMessage_emptyList_saysSo() {
+        assertEquals(String.format("There are no tasks in your list!%n"), Ui.listTaskMessage(new TaskList()));
+    }
+}
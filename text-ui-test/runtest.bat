@@ -7,15 +7,20 @@ REM delete output from previous run
 if exist ACTUAL.TXT del ACTUAL.TXT
 
 REM compile the code into the bin folder
-javac  -cp ..\src\main\java -Xlint:none -d ..\bin ..\src\main\java\*.java
+dir /s /b ..\src\main\java\chatty\*.java > sources.txt
+javac -encoding UTF-8 -Xlint:none -d ..\bin @sources.txt
+del sources.txt
 IF ERRORLEVEL 1 (
     echo ********** BUILD FAILURE **********
     exit /b 1
 )
 REM no error here, errorlevel == 0
 
-REM run the program, feed commands from input.txt file and redirect the output to the ACTUAL.TXT
-java -classpath ..\bin Duke < input.txt > ACTUAL.TXT
+REM delete saved tasks from previous run
+if exist data rmdir /s /q data
+
+REM run the commands without the GUI, feed them from input.txt and redirect the replies to ACTUAL.TXT
+java -classpath ..\bin chatty.BatchRunner < input.txt > ACTUAL.TXT
 
 REM compare the output to the expected output
 FC ACTUAL.TXT EXPECTED.TXT
@@ -8,14 +8,17 @@ fi
 # Remove output from previous run
 rm -f ACTUAL.TXT
 
-# Compile all Java files recursively
-if ! javac -Xlint:none -d ../bin $(find ../src/main/java -name "*.java"); then
+# Compile the Java files that do not need JavaFX
+if ! javac -encoding UTF-8 -Xlint:none -d ../bin $(find ../src/main/java/chatty -name "*.java"); then
     echo "********** BUILD FAILURE **********"
     exit 1
 fi
 
-# Run using fully qualified class name
-java -cp ../bin chatty.Chatty < input.txt > ACTUAL.TXT
+# Remove saved tasks from previous run
+rm -rf data
+
+# Run the commands without the GUI; the throughput report goes to standard error
+java -cp ../bin chatty.BatchRunner < input.txt > ACTUAL.TXT
 
 # Compare output
 diff ACTUAL.TXT EXPECTED.TXT